@@ -1,7 +1,21 @@
+import engine.BasicEngine;
+import engine.Bench;
 import uci.UciLoop;
+import uci.UciParser;
 
 public final class Main {
     public static void main(String[] args) throws Exception {
+        // "bench [depth]" runs the benchmark suite and exits; otherwise speak UCI
+        if (args.length > 0 && args[0].equals("bench")) {
+            UciParser.BenchCommand bench = UciParser.parseBench(String.join(" ", args));
+            if (bench == null) {
+                System.err.println("usage: bench [depth], depth a positive integer (default "
+                        + Bench.DEFAULT_DEPTH + ")");
+                System.exit(1);
+            }
+            Bench.run(new BasicEngine(), bench.depth(), System.out);
+            return;
+        }
         new UciLoop().run();
     }
 }
@@ -0,0 +1,33 @@
+package benchmarks;
+
+import core.Attack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttackBenchmark {
+    /** Every square, attacked by either side: 128 queries per call. */
+    @Benchmark
+    public int isSquareAttacked(Corpus c) {
+        int attacked = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (Attack.isSquareAttacked(c.pos, sq, true))
+                attacked++;
+            if (Attack.isSquareAttacked(c.pos, sq, false))
+                attacked++;
+        }
+        return attacked;
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import core.Move;
+import core.MoveGen;
+import core.Position;
+import core.UciMove;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark positions, one per run of each benchmark, so results come out
+ * per position: quiet openings, a crowded tactical middlegame, a sparse
+ * endgame and a position full of promotions and checks.
+ */
+@State(Scope.Thread)
+public class Corpus {
+    @Param({ "startpos", "kiwipete", "middlegame", "endgame", "promotions" })
+    public String name;
+
+    public String fen;
+    public Position pos;
+    /** Move buffer for the packed generators. */
+    public final int[] buffer = new int[MoveGen.MAX_MOVES];
+    /** The position's legal moves, as moves and as UCI strings. */
+    public Move[] legal;
+    public String[] uci;
+
+    @Setup
+    public void setup() {
+        fen = switch (name) {
+            case "startpos" -> "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+            case "kiwipete" -> "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            case "middlegame" -> "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+            case "endgame" -> "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+            case "promotions" -> "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+            default -> throw new IllegalArgumentException("unknown position " + name);
+        };
+        pos = Position.fromFen(fen);
+        List<Move> moves = MoveGen.generateLegal(pos);
+        legal = moves.toArray(new Move[0]);
+        uci = new String[legal.length];
+        for (int i = 0; i < legal.length; i++)
+            uci[i] = UciMove.format(legal[i]);
+    }
+}
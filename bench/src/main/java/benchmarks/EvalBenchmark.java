@@ -0,0 +1,26 @@
+package benchmarks;
+
+import engine.Eval;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+    /** Full evaluation without the search's pawn hash table, so pawn structure is scored every call. */
+    @Benchmark
+    public int evaluate(Corpus c) {
+        return Eval.evaluate(c.pos);
+    }
+}
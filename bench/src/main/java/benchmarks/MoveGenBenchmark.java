@@ -0,0 +1,43 @@
+package benchmarks;
+
+import core.Move;
+import core.MoveGen;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenBenchmark {
+    @Benchmark
+    public int generateLegal(Corpus c) {
+        return MoveGen.generateLegal(c.pos, c.buffer);
+    }
+
+    @Benchmark
+    public int generatePseudoLegal(Corpus c) {
+        return MoveGen.generatePseudoLegal(c.pos, c.buffer, 0);
+    }
+
+    /** The allocating List form used at the UCI boundary. */
+    @Benchmark
+    public List<Move> generateLegalList(Corpus c) {
+        return MoveGen.generateLegal(c.pos);
+    }
+
+    @Benchmark
+    public int generateNoisy(Corpus c) {
+        return MoveGen.generateNoisy(c.pos, c.buffer, 0);
+    }
+}
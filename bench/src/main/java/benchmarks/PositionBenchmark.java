@@ -0,0 +1,46 @@
+package benchmarks;
+
+import core.Move;
+import core.Position;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark {
+    /** Copying apply() for every legal move, as the UCI layer uses it. */
+    @Benchmark
+    public void apply(Corpus c, Blackhole bh) {
+        for (Move m : c.legal)
+            bh.consume(c.pos.apply(m));
+    }
+
+    /** In-place make/unmake for every legal move, as the search uses it. */
+    @Benchmark
+    public long makeUnmake(Corpus c) {
+        long keys = 0;
+        for (Move m : c.legal) {
+            c.pos.makeMove(m);
+            keys ^= c.pos.hash();
+            c.pos.unmakeMove();
+        }
+        return keys;
+    }
+
+    @Benchmark
+    public Position fromFen(Corpus c) {
+        return Position.fromFen(c.fen);
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Takes JMH's usual command line,
+ * including the help and listing flags, and always adds the GC profiler to
+ * a run, so every result reports allocation per operation alongside time.
+ */
+public final class Run {
+    private Run() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd;
+        try {
+            cmd = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line:");
+            System.err.println(" " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // Same dispatch as org.openjdk.jmh.Main
+        Runner runner = new Runner(cmd);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+        } else if (cmd.shouldList()) {
+            runner.list();
+        } else if (cmd.shouldListWithParams()) {
+            runner.listWithParams(cmd);
+        } else if (cmd.shouldListProfilers()) {
+            cmd.listProfilers();
+        } else if (cmd.shouldListResultFormats()) {
+            cmd.listResultFormats();
+        } else {
+            Options options = new OptionsBuilder()
+                    .parent(cmd)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import core.Move;
+import core.UciMove;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UciMoveBenchmark {
+    /** Parse the UCI string of every legal move in the position. */
+    @Benchmark
+    public void parse(Corpus c, Blackhole bh) {
+        for (String s : c.uci)
+            bh.consume(UciMove.parse(s));
+    }
+
+    /** Format every legal move in the position. */
+    @Benchmark
+    public void format(Corpus c, Blackhole bh) {
+        for (Move m : c.legal)
+            bh.consume(UciMove.format(m));
+    }
+}
@@ -4,106 +4,123 @@ public final class Attack {
     private Attack() {
     }
 
+    // Exchange values by piece type; the king outweighs any exchange it could end
+    private static final int[] SEE_VALUES = { PST.PIECE_VALUES[0], PST.PIECE_VALUES[1], PST.PIECE_VALUES[2],
+            PST.PIECE_VALUES[3], PST.PIECE_VALUES[4], 20000 };
+
+    /** Swap list length for see: one entry per capture, at most 32 pieces. */
+    public static final int SEE_GAIN_SIZE = 33;
+
     public static boolean isSquareAttacked(Position pos, int targetSq, boolean byWhite) {
-        int tr = targetSq / 8;
-        int tf = targetSq % 8;
-
-        // Pawns
-        if (byWhite) {
-            // white pawns attack (file-1, rank-1) and (file+1, rank-1) relative to target
-            if (attackedByPawn(pos, tr - 1, tf - 1, 'P'))
-                return true;
-            if (attackedByPawn(pos, tr - 1, tf + 1, 'P'))
-                return true;
-        } else {
-            if (attackedByPawn(pos, tr + 1, tf - 1, 'p'))
-                return true;
-            if (attackedByPawn(pos, tr + 1, tf + 1, 'p'))
-                return true;
-        }
+        int side = byWhite ? 0 : Position.BLACK_PAWN;
+        long occupied = pos.occupied();
+
+        // Pawns: a white pawn attacks targetSq iff a black pawn on targetSq would attack it
+        long pawnAttackers = Bitboards.PAWN_ATTACKS[byWhite ? 1 : 0][targetSq];
+        if ((pawnAttackers & pos.bitboard(side + Position.WHITE_PAWN)) != 0)
+            return true;
 
         // Knights
-        int[][] kD = {
-                { +1, +2 }, { +2, +1 }, { +2, -1 }, { +1, -2 },
-                { -1, -2 }, { -2, -1 }, { -2, +1 }, { -1, +2 }
-        };
-        char kn = byWhite ? 'N' : 'n';
-        for (int[] d : kD) {
-            int r = tr + d[1], f = tf + d[0];
-            if (rIn(r) && fIn(f) && pos.pieceAt(r * 8 + f) == kn)
-                return true;
-        }
+        if ((Bitboards.KNIGHT_ATTACKS[targetSq] & pos.bitboard(side + Position.WHITE_KNIGHT)) != 0)
+            return true;
 
         // King (adjacent)
-        char ki = byWhite ? 'K' : 'k';
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int df = -1; df <= 1; df++) {
-                if (dr == 0 && df == 0)
-                    continue;
-                int r = tr + dr, f = tf + df;
-                if (rIn(r) && fIn(f) && pos.pieceAt(r * 8 + f) == ki)
-                    return true;
-            }
-        }
+        if ((Bitboards.KING_ATTACKS[targetSq] & pos.bitboard(side + Position.WHITE_KING)) != 0)
+            return true;
+
+        long queens = pos.bitboard(side + Position.WHITE_QUEEN);
 
         // Sliders: bishops/queens (diagonals)
-        if (rayAttack(pos, tr, tf, +1, +1, byWhite, 'B', 'Q'))
-            return true;
-        if (rayAttack(pos, tr, tf, +1, -1, byWhite, 'B', 'Q'))
-            return true;
-        if (rayAttack(pos, tr, tf, -1, +1, byWhite, 'B', 'Q'))
-            return true;
-        if (rayAttack(pos, tr, tf, -1, -1, byWhite, 'B', 'Q'))
+        long diagonal = pos.bitboard(side + Position.WHITE_BISHOP) | queens;
+        if (diagonal != 0 && (Bitboards.bishopAttacks(targetSq, occupied) & diagonal) != 0)
             return true;
 
         // Sliders: rooks/queens (orthogonal)
-        if (rayAttack(pos, tr, tf, +1, 0, byWhite, 'R', 'Q'))
-            return true;
-        if (rayAttack(pos, tr, tf, -1, 0, byWhite, 'R', 'Q'))
-            return true;
-        if (rayAttack(pos, tr, tf, 0, +1, byWhite, 'R', 'Q'))
-            return true;
-        if (rayAttack(pos, tr, tf, 0, -1, byWhite, 'R', 'Q'))
-            return true;
+        long orthogonal = pos.bitboard(side + Position.WHITE_ROOK) | queens;
+        return orthogonal != 0 && (Bitboards.rookAttacks(targetSq, occupied) & orthogonal) != 0;
+    }
 
-        return false;
+    /**
+     * Pieces of both colours attacking sq, with sliders seen through the
+     * given occupancy. Pieces not in occupied are still returned if they
+     * attack sq; callers mask with occupied to drop captured pieces.
+     */
+    public static long attackersTo(Position pos, int sq, long occupied) {
+        long bishops = pos.bitboard(Position.WHITE_BISHOP) | pos.bitboard(Position.BLACK_BISHOP);
+        long rooks = pos.bitboard(Position.WHITE_ROOK) | pos.bitboard(Position.BLACK_ROOK);
+        long queens = pos.bitboard(Position.WHITE_QUEEN) | pos.bitboard(Position.BLACK_QUEEN);
+        return (Bitboards.PAWN_ATTACKS[1][sq] & pos.bitboard(Position.WHITE_PAWN))
+                | (Bitboards.PAWN_ATTACKS[0][sq] & pos.bitboard(Position.BLACK_PAWN))
+                | (Bitboards.KNIGHT_ATTACKS[sq]
+                        & (pos.bitboard(Position.WHITE_KNIGHT) | pos.bitboard(Position.BLACK_KNIGHT)))
+                | (Bitboards.KING_ATTACKS[sq]
+                        & (pos.bitboard(Position.WHITE_KING) | pos.bitboard(Position.BLACK_KING)))
+                | (Bitboards.bishopAttacks(sq, occupied) & (bishops | queens))
+                | (Bitboards.rookAttacks(sq, occupied) & (rooks | queens));
     }
 
-    private static boolean attackedByPawn(Position pos, int r, int f, char pawnChar) {
-        if (!rIn(r) || !fIn(f))
-            return false;
-        return pos.pieceAt(r * 8 + f) == pawnChar;
+    /**
+     * Static exchange evaluation: material won by the side to move from the
+     * sequence of captures on the target square of a packed move, with each
+     * side recapturing with its least valuable piece and free to stop
+     * whenever continuing would lose material. Pins are ignored.
+     *
+     * @return gain in centipawns; negative means the move loses material
+     */
+    public static int see(Position pos, int move) {
+        return see(pos, move, new int[SEE_GAIN_SIZE]);
     }
 
-    private static boolean rayAttack(Position pos, int tr, int tf, int df, int dr, boolean byWhite, char bishopOrRook,
-            char queen) {
-        int r = tr, f = tf;
-        while (true) {
-            r += dr;
-            f += df;
-            if (!rIn(r) || !fIn(f))
-                return false;
-            char p = pos.pieceAt(r * 8 + f);
-            if (p == '.')
-                continue;
-
-            // first piece on ray blocks; if it's the right attacker, true else false
-            if (byWhite && Character.isLowerCase(p))
-                return false;
-            if (!byWhite && Character.isUpperCase(p))
-                return false;
-
-            char needed1 = byWhite ? bishopOrRook : Character.toLowerCase(bishopOrRook);
-            char neededQ = byWhite ? queen : Character.toLowerCase(queen);
-            return p == needed1 || p == neededQ;
+    /**
+     * As {@link #see(Position, int)}, with a caller-owned swap list of at
+     * least SEE_GAIN_SIZE entries so the search does not allocate per call.
+     */
+    public static int see(Position pos, int move, int[] gain) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        boolean white = pos.isWhiteToMove();
+
+        long occupied = pos.occupied();
+        int victim = pos.pieceIndexAt(to);
+        if (PackedMove.isEnPassant(move)) {
+            victim = white ? Position.BLACK_PAWN : Position.WHITE_PAWN;
+            occupied ^= 1L << (white ? to - 8 : to + 8);
+        }
+        gain[0] = victim == Position.NO_PIECE ? 0 : SEE_VALUES[victim % 6];
+        int onSquare = SEE_VALUES[pos.pieceIndexAt(from) % 6];
+        if (PackedMove.isPromotion(move)) {
+            onSquare = SEE_VALUES[PackedMove.promotion(move)];
+            gain[0] += onSquare - SEE_VALUES[0];
         }
-    }
 
-    private static boolean rIn(int r) {
-        return r >= 0 && r <= 7;
-    }
+        long fromBit = 1L << from;
+        int d = 0;
+        while (true) {
+            d++;
+            // Score for the side now to recapture if it takes the piece on the square
+            gain[d] = onSquare - gain[d - 1];
+            if (Math.max(-gain[d - 1], gain[d]) < 0)
+                break; // neither side can improve by continuing
+            occupied ^= fromBit;
+            white = !white;
 
-    private static boolean fIn(int f) {
-        return f >= 0 && f <= 7;
+            long attackers = attackersTo(pos, to, occupied) & occupied;
+            long own = attackers & pos.occupancy(white);
+            if (own == 0)
+                break;
+            int side = white ? Position.WHITE_PAWN : Position.BLACK_PAWN;
+            int type = Position.WHITE_PAWN;
+            long bb;
+            while ((bb = own & pos.bitboard(side + type)) == 0)
+                type++;
+            // The king may only take last
+            if (type == Position.WHITE_KING && (attackers & pos.occupancy(!white)) != 0)
+                break;
+            fromBit = bb & -bb;
+            onSquare = SEE_VALUES[type];
+        }
+        while (--d > 0)
+            gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+        return gain[0];
     }
 }
@@ -0,0 +1,213 @@
+package core;
+
+/**
+ * Bitboard constants and precomputed attack tables.
+ * Square numbering matches Position: a1=0, h1=7, a8=56, h8=63.
+ * Slider attacks use magic bitboards built once at class-load time.
+ */
+public final class Bitboards {
+    private Bitboards() {
+    }
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_3 = RANK_1 << 16;
+    public static final long RANK_6 = RANK_1 << 40;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    // [0] = squares attacked by a white pawn on sq, [1] = by a black pawn
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        int[][] knightDeltas = {
+                { +1, +2 }, { +2, +1 }, { +2, -1 }, { +1, -2 },
+                { -1, -2 }, { -2, -1 }, { -2, +1 }, { -1, +2 }
+        };
+        for (int sq = 0; sq < 64; sq++) {
+            int r = sq / 8;
+            int f = sq % 8;
+            for (int[] d : knightDeltas)
+                KNIGHT_ATTACKS[sq] |= bitIfOnBoard(r + d[1], f + d[0]);
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int df = -1; df <= 1; df++) {
+                    if (dr != 0 || df != 0)
+                        KING_ATTACKS[sq] |= bitIfOnBoard(r + dr, f + df);
+                }
+            }
+            PAWN_ATTACKS[0][sq] = bitIfOnBoard(r + 1, f - 1) | bitIfOnBoard(r + 1, f + 1);
+            PAWN_ATTACKS[1][sq] = bitIfOnBoard(r - 1, f - 1) | bitIfOnBoard(r - 1, f + 1);
+        }
+    }
+
+    // Magic lookup: attacks = TABLE[OFFSET[sq] + ((occ & MASK[sq]) * MAGIC[sq] >>> SHIFT[sq])]
+    // The multipliers were found offline by random search and are checked for
+    // collisions when the tables are filled.
+    private static final long[] ROOK_MAGIC = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L,
+            0x0880100008000480L, 0x4200100420080200L, 0x8100020100080400L,
+            0x0200040110886200L, 0x0200008040220411L, 0x0404800084400220L,
+            0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L,
+            0x0442000102105084L, 0x9080010020804100L, 0x0040404000201009L,
+            0x0000808010002009L, 0x2200090021D00100L, 0x0008008008040080L,
+            0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L,
+            0x1000100080080080L, 0x0442000A00049020L, 0x2100040080020080L,
+            0x0800120400900148L, 0x0010040A00128541L, 0x2800804000800030L,
+            0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+            0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L,
+            0x0182085882000401L, 0x0220204000808000L, 0x2860100040024022L,
+            0x0001002004110040L, 0x99101042000A0020L, 0x0004080004008080L,
+            0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L,
+            0x0801100280080480L, 0x0242009008200600L, 0x1002000489500200L,
+            0x0040800200010080L, 0x0091800041000080L, 0x0000209300488001L,
+            0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L,
+            0x4000002840840112L
+    };
+    private static final long[] BISHOP_MAGIC = {
+            0xA010041108003100L, 0x006082020A002900L, 0x6810010619200000L,
+            0x08281A0520000408L, 0x0001104001000400L, 0x0018901008048400L,
+            0x00040A0210245280L, 0x000200210808A402L, 0x9140048410821200L,
+            0x0800091010820041L, 0x20504804832202C0L, 0x0100091401081000L,
+            0x8021011140000012L, 0x0810020804450400L, 0x208B0542109008A2L,
+            0x0080084A08040204L, 0x0040E2A80811244CL, 0x2505022008008108L,
+            0x0430220100420040L, 0x010A040420220040L, 0x1105000290400000L,
+            0x0093001200822120L, 0x4000A62048043004L, 0x280120048A015004L,
+            0x006090002A020814L, 0x44042000240800D0L, 0x01102800040A4400L,
+            0x1004080080220040L, 0x0001001011004024L, 0x0010044000805040L,
+            0x0914041200820100L, 0x0004821012821480L, 0x0024040500C05021L,
+            0x0088611002080200L, 0x0116080A00040020L, 0x4000020080080080L,
+            0x2450450140840040L, 0x0000880201484100L, 0x0222020404020092L,
+            0x8081110600002E00L, 0x2842101105000801L, 0x1100809008001025L,
+            0x00020202221C0400L, 0x0422014022009020L, 0x0210046102100C00L,
+            0xC004008082029102L, 0x00AA461801101200L, 0x0404080080201108L,
+            0x020542108C205002L, 0x0410544804100100L, 0x0040910841100000L,
+            0x0400200042021100L, 0x00004204850400C0L, 0x0200100410A42102L,
+            0x1040020801210102L, 0x0805040410420000L, 0x2884804130100200L,
+            0x800C262201242000L, 0x1058000194108800L, 0x0014221054420204L,
+            0x0104000012A02200L, 0x0200881003300100L, 0x0140400202840100L,
+            0x0402020801010201L
+    };
+    private static final long[] ROOK_MASK = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        long edges = FILE_A | FILE_H | RANK_1 | RANK_8;
+        for (int sq = 0; sq < 64; sq++) {
+            ROOK_MASK[sq] = (ray(sq, 0L, 0, 1) & ~RANK_8) | (ray(sq, 0L, 0, -1) & ~RANK_1)
+                    | (ray(sq, 0L, 1, 0) & ~FILE_H) | (ray(sq, 0L, -1, 0) & ~FILE_A);
+            BISHOP_MASK[sq] = slowBishopAttacks(sq, 0L) & ~edges;
+        }
+        ROOK_TABLE = fillMagicTable(ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET, false);
+        BISHOP_TABLE = fillMagicTable(BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET, true);
+    }
+
+    // Squares strictly between two squares on a shared rank, file or diagonal (0 if not aligned)
+    public static final long[][] BETWEEN = new long[64][64];
+    // The full rank, file or diagonal through two aligned squares (0 if not aligned)
+    public static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b)
+                    continue;
+                long bBit = 1L << b;
+                if ((slowRookAttacks(a, 0L) & bBit) != 0) {
+                    BETWEEN[a][b] = slowRookAttacks(a, bBit) & slowRookAttacks(b, 1L << a);
+                    LINE[a][b] = (slowRookAttacks(a, 0L) & slowRookAttacks(b, 0L)) | (1L << a) | bBit;
+                } else if ((slowBishopAttacks(a, 0L) & bBit) != 0) {
+                    BETWEEN[a][b] = slowBishopAttacks(a, bBit) & slowBishopAttacks(b, 1L << a);
+                    LINE[a][b] = (slowBishopAttacks(a, 0L) & slowBishopAttacks(b, 0L)) | (1L << a) | bBit;
+                }
+            }
+        }
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSET[sq]
+                + (int) (((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSET[sq]
+                + (int) (((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return bishopAttacks(sq, occupied) | rookAttacks(sq, occupied);
+    }
+
+    private static long[] fillMagicTable(long[] masks, long[] magics, int[] shifts, int[] offsets, boolean bishop) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            offsets[sq] = size;
+            shifts[sq] = 64 - Long.bitCount(masks[sq]);
+            size += 1 << Long.bitCount(masks[sq]);
+        }
+        long[] table = new long[size];
+
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = masks[sq];
+            // Enumerate every subset of the mask (carry-rippler)
+            long sub = 0L;
+            do {
+                long attacks = bishop ? slowBishopAttacks(sq, sub) : slowRookAttacks(sq, sub);
+                int idx = offsets[sq] + (int) ((sub * magics[sq]) >>> shifts[sq]);
+                if (table[idx] != 0L && table[idx] != attacks)
+                    throw new IllegalStateException("magic collision on square " + sq);
+                table[idx] = attacks;
+                sub = (sub - mask) & mask;
+            } while (sub != 0L);
+        }
+        return table;
+    }
+
+    private static long slowBishopAttacks(int sq, long occupied) {
+        return ray(sq, occupied, 1, 1) | ray(sq, occupied, 1, -1)
+                | ray(sq, occupied, -1, 1) | ray(sq, occupied, -1, -1);
+    }
+
+    private static long slowRookAttacks(int sq, long occupied) {
+        return ray(sq, occupied, 1, 0) | ray(sq, occupied, -1, 0)
+                | ray(sq, occupied, 0, 1) | ray(sq, occupied, 0, -1);
+    }
+
+    /**
+     * Squares reached from sq in direction (df, dr), up to and including the
+     * first occupied square.
+     */
+    private static long ray(int sq, long occupied, int df, int dr) {
+        long out = 0L;
+        int r = sq / 8 + dr;
+        int f = sq % 8 + df;
+        while (r >= 0 && r <= 7 && f >= 0 && f <= 7) {
+            long b = 1L << (r * 8 + f);
+            out |= b;
+            if ((occupied & b) != 0)
+                break;
+            r += dr;
+            f += df;
+        }
+        return out;
+    }
+
+    private static long bitIfOnBoard(int r, int f) {
+        if (r < 0 || r > 7 || f < 0 || f > 7)
+            return 0L;
+        return 1L << (r * 8 + f);
+    }
+}
@@ -7,41 +7,141 @@ public final class MoveGen {
     private MoveGen() {
     }
 
+    /** Upper bound on moves in any legal position, for sizing move buffers. */
+    public static final int MAX_MOVES = 256;
+
     public static List<Move> generatePseudoLegal(Position pos) {
-        List<Move> out = new ArrayList<>();
+        int[] buf = new int[MAX_MOVES];
+        return toMoves(buf, generatePseudoLegal(pos, buf, 0));
+    }
+
+    /**
+     * Write pseudo-legal packed moves for the side to move into moves,
+     * starting at index start.
+     *
+     * @return index one past the last move written
+     */
+    public static int generatePseudoLegal(Position pos, int[] moves, int start) {
+        return generate(pos, moves, start, CAPTURES | QUIETS | PROMOTIONS, ~0L);
+    }
+
+    /** Pseudo-legal captures only, including en passant and capturing promotions. */
+    public static int generateCaptures(Position pos, int[] moves, int start) {
+        return generate(pos, moves, start, CAPTURES, ~0L);
+    }
+
+    /** Pseudo-legal non-captures only: pushes, quiet promotions, piece moves and castling. */
+    public static int generateQuiets(Position pos, int[] moves, int start) {
+        return generate(pos, moves, start, QUIETS | PROMOTIONS, ~0L);
+    }
+
+    /**
+     * Legal captures and promotions, the moves quiescence searches. Legality
+     * comes from the check and pin masks, so no move is made.
+     */
+    public static int generateNoisy(Position pos, int[] moves, int start) {
+        return generateLegal(pos, moves, start, CAPTURES | PROMOTIONS);
+    }
+
+    /**
+     * Legal replies to check: king moves to unattacked squares and, against
+     * a single checker, captures of it and interpositions on its line. Under
+     * double check only the king is generated. Only valid in check.
+     */
+    public static int generateEvasions(Position pos, int[] moves, int start) {
         boolean white = pos.isWhiteToMove();
+        long kingBit = pos.bitboard(white ? Position.WHITE_KING : Position.BLACK_KING);
+        int king = Long.numberOfTrailingZeros(kingBit);
+        long own = pos.occupancy(white);
+        long enemy = pos.occupancy(!white);
+        long occupied = own | enemy;
+        long checkers = Attack.attackersTo(pos, king, occupied) & enemy;
+        assert checkers != 0 : "generateEvasions called out of check";
 
-        for (int sq = 0; sq < 64; sq++) {
-            char p = pos.pieceAt(sq);
-            if (p == '.')
-                continue;
-
-            if (white && Character.isLowerCase(p))
-                continue;
-            if (!white && Character.isUpperCase(p))
-                continue;
-
-            switch (Character.toLowerCase(p)) {
-                case 'p' -> genPawn(pos, sq, white, out);
-                case 'n' -> genKnight(pos, sq, white, out);
-                case 'b' -> genSlider(pos, sq, white, out, BISHOP_DIRS);
-                case 'r' -> genSlider(pos, sq, white, out, ROOK_DIRS);
-                case 'q' -> genSlider(pos, sq, white, out, QUEEN_DIRS);
-                case 'k' -> genKing(pos, sq, white, out);
-                default -> {
-                }
+        // The king is lifted off the board so it cannot hide behind itself on a checking line
+        int n = start;
+        for (long targets = Bitboards.KING_ATTACKS[king] & ~own; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if ((Attack.attackersTo(pos, to, occupied ^ kingBit) & enemy) == 0) {
+                int flags = (enemy & (1L << to)) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+                moves[n++] = PackedMove.of(king, to, PackedMove.PROMO_NONE, flags);
             }
         }
-        return out;
+        if ((checkers & (checkers - 1)) != 0)
+            return n;
+
+        // A pinned piece can never capture or block a single checker
+        long mask = checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long pinned = pinned(pos, king, white);
+        int end = generatePieces(pos, moves, n, CAPTURES | QUIETS | PROMOTIONS, mask);
+        for (int i = n; i < end; i++) {
+            int m = moves[i];
+            if ((pinned & (1L << PackedMove.from(m))) == 0
+                    && (!PackedMove.isEnPassant(m) || enPassantLegal(pos, m, king, white)))
+                moves[n++] = m;
+        }
+        return n;
     }
 
-    // Directions as (df, dr)
-    private static final int[][] BISHOP_DIRS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
-    private static final int[][] ROOK_DIRS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-    private static final int[][] QUEEN_DIRS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 }, { 1, 0 }, { -1, 0 },
-            { 0, 1 }, { 0, -1 } };
+    // Move kinds for generate: captures (with capturing promotions), non-capturing
+    // non-promotions, and non-capturing promotions
+    private static final int CAPTURES = 1;
+    private static final int QUIETS = 2;
+    private static final int PROMOTIONS = 4;
+
+    /**
+     * Pseudo-legal moves of the given kinds. Destinations of pieces other
+     * than the king are limited to mask; an en passant capture passes if
+     * either its target or the captured pawn's square is in mask.
+     */
+    private static int generate(Position pos, int[] moves, int start, int kinds, long mask) {
+        int n = generatePieces(pos, moves, start, kinds, mask);
+        boolean white = pos.isWhiteToMove();
+        int side = white ? Position.WHITE_PAWN : Position.BLACK_PAWN;
+        long enemy = pos.occupancy(!white);
+        long kingTargets = ((kinds & CAPTURES) != 0 ? enemy : 0) | ((kinds & QUIETS) != 0 ? ~pos.occupied() : 0);
+        for (long bb = pos.bitboard(side + Position.WHITE_KING); bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            n = addTargets(from, Bitboards.KING_ATTACKS[from] & kingTargets, enemy, moves, n);
+            if ((kinds & QUIETS) != 0)
+                n = genCastling(pos, from, white, moves, n);
+        }
+        return n;
+    }
 
-    private static void genPawn(Position pos, int from, boolean white, List<Move> out) {
+    /** As generate, for every piece but the king. */
+    private static int generatePieces(Position pos, int[] moves, int start, int kinds, long mask) {
+        int n = start;
+        boolean white = pos.isWhiteToMove();
+        int side = white ? Position.WHITE_PAWN : Position.BLACK_PAWN;
+        long own = pos.occupancy(white);
+        long enemy = pos.occupancy(!white);
+        long occupied = own | enemy;
+        long targets = (((kinds & CAPTURES) != 0 ? enemy : 0) | ((kinds & QUIETS) != 0 ? ~occupied : 0)) & mask;
+
+        for (long bb = pos.bitboard(side + Position.WHITE_PAWN); bb != 0; bb &= bb - 1)
+            n = genPawn(pos, Long.numberOfTrailingZeros(bb), white, enemy, kinds, mask, moves, n);
+        for (long bb = pos.bitboard(side + Position.WHITE_KNIGHT); bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            n = addTargets(from, Bitboards.KNIGHT_ATTACKS[from] & targets, enemy, moves, n);
+        }
+        for (long bb = pos.bitboard(side + Position.WHITE_BISHOP); bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            n = addTargets(from, Bitboards.bishopAttacks(from, occupied) & targets, enemy, moves, n);
+        }
+        for (long bb = pos.bitboard(side + Position.WHITE_ROOK); bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            n = addTargets(from, Bitboards.rookAttacks(from, occupied) & targets, enemy, moves, n);
+        }
+        for (long bb = pos.bitboard(side + Position.WHITE_QUEEN); bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            n = addTargets(from, Bitboards.queenAttacks(from, occupied) & targets, enemy, moves, n);
+        }
+        return n;
+    }
+
+    private static int genPawn(Position pos, int from, boolean white, long enemy,
+            int kinds, long mask, int[] moves, int n) {
         int r = from / 8;
         int f = from % 8;
 
@@ -50,43 +150,37 @@ public final class MoveGen {
         int promoRankFrom = white ? 6 : 1; // moving from this rank to last rank promotes
 
         int oneRank = r + dir;
-        if (oneRank >= 0 && oneRank <= 7) {
+        boolean pushes = (kinds & (r == promoRankFrom ? PROMOTIONS : QUIETS)) != 0;
+        if (pushes && oneRank >= 0 && oneRank <= 7) {
             int one = oneRank * 8 + f;
             if (pos.isEmpty(one)) {
-                if (r == promoRankFrom) {
-                    addPromotions(from, one, out);
-                } else {
-                    out.add(new Move(from, one, (char) 0));
+                if ((mask & (1L << one)) != 0) {
+                    if (r == promoRankFrom) {
+                        n = addPromotions(from, one, 0, moves, n);
+                    } else {
+                        moves[n++] = PackedMove.of(from, one, PackedMove.PROMO_NONE, 0);
+                    }
                 }
 
                 if (r == startRank) {
                     int twoRank = r + 2 * dir;
                     int two = twoRank * 8 + f;
-                    if (pos.isEmpty(two))
-                        out.add(new Move(from, two, (char) 0));
+                    if (pos.isEmpty(two) && (mask & (1L << two)) != 0)
+                        moves[n++] = PackedMove.of(from, two, PackedMove.PROMO_NONE, PackedMove.FLAG_DOUBLE_PUSH);
                 }
             }
         }
+        if ((kinds & CAPTURES) == 0)
+            return n;
 
         // captures
-        int[] df = { -1, +1 };
-        for (int dfile : df) {
-            int nf = f + dfile;
-            int nr = r + dir;
-            if (nf < 0 || nf > 7 || nr < 0 || nr > 7)
-                continue;
-            int to = nr * 8 + nf;
-
-            char target = pos.pieceAt(to);
-            if (target == '.')
-                continue;
-
-            if (isEnemy(target, white)) {
-                if (r == promoRankFrom) {
-                    addPromotions(from, to, out);
-                } else {
-                    out.add(new Move(from, to, (char) 0));
-                }
+        long targets = Bitboards.PAWN_ATTACKS[white ? 0 : 1][from] & enemy & mask;
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (r == promoRankFrom) {
+                n = addPromotions(from, to, PackedMove.FLAG_CAPTURE, moves, n);
+            } else {
+                moves[n++] = PackedMove.of(from, to, PackedMove.PROMO_NONE, PackedMove.FLAG_CAPTURE);
             }
         }
 
@@ -95,150 +189,287 @@ public final class MoveGen {
         if (epSq != -1) {
             int epRank = epSq / 8;
             int epFile = epSq % 8;
+            long epMask = (1L << epSq) | (1L << (epSq - 8 * dir));
 
             // Check if a pawn can capture en passant
-            if (Math.abs(epFile - f) == 1 && epRank == oneRank) {
-                out.add(new Move(from, epSq, (char) 0));
+            if (Math.abs(epFile - f) == 1 && epRank == oneRank && (mask & epMask) != 0) {
+                moves[n++] = PackedMove.of(from, epSq, PackedMove.PROMO_NONE,
+                        PackedMove.FLAG_CAPTURE | PackedMove.FLAG_EN_PASSANT);
             }
         }
+        return n;
     }
 
-    private static void addPromotions(int from, int to, List<Move> out) {
-        out.add(new Move(from, to, 'q'));
-        out.add(new Move(from, to, 'r'));
-        out.add(new Move(from, to, 'b'));
-        out.add(new Move(from, to, 'n'));
+    private static int addPromotions(int from, int to, int flags, int[] moves, int n) {
+        moves[n++] = PackedMove.of(from, to, PackedMove.PROMO_QUEEN, flags);
+        moves[n++] = PackedMove.of(from, to, PackedMove.PROMO_ROOK, flags);
+        moves[n++] = PackedMove.of(from, to, PackedMove.PROMO_BISHOP, flags);
+        moves[n++] = PackedMove.of(from, to, PackedMove.PROMO_KNIGHT, flags);
+        return n;
     }
 
-    private static void genKnight(Position pos, int from, boolean white, List<Move> out) {
-        int r = from / 8;
-        int f = from % 8;
-        int[][] deltas = {
-                { +1, +2 }, { +2, +1 }, { +2, -1 }, { +1, -2 },
-                { -1, -2 }, { -2, -1 }, { -2, +1 }, { -1, +2 }
-        };
-        for (int[] d : deltas) {
-            int nr = r + d[1];
-            int nf = f + d[0];
-            if (nr < 0 || nr > 7 || nf < 0 || nf > 7)
-                continue;
-            int to = nr * 8 + nf;
-
-            char target = pos.pieceAt(to);
-            if (target == '.' || isEnemy(target, white)) {
-                out.add(new Move(from, to, (char) 0));
-            }
+    private static int addTargets(int from, long targets, long enemy, int[] moves, int n) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int flags = (enemy & (1L << to)) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+            moves[n++] = PackedMove.of(from, to, PackedMove.PROMO_NONE, flags);
         }
+        return n;
     }
 
-    private static void genKing(Position pos, int from, boolean white, List<Move> out) {
-        int r = from / 8;
-        int f = from % 8;
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int df = -1; df <= 1; df++) {
-                if (dr == 0 && df == 0)
-                    continue;
-                int nr = r + dr;
-                int nf = f + df;
-                if (nr < 0 || nr > 7 || nf < 0 || nf > 7)
-                    continue;
-                int to = nr * 8 + nf;
-
-                char target = pos.pieceAt(to);
-                if (target == '.' || isEnemy(target, white)) {
-                    out.add(new Move(from, to, (char) 0));
-                }
-            }
-        }
+    private static int genCastling(Position pos, int from, boolean white, int[] moves, int n) {
+        if (from != (white ? 4 : 60))
+            return n;
+        if (canCastle(pos, white, true))
+            moves[n++] = PackedMove.of(from, from + 2, PackedMove.PROMO_NONE, PackedMove.FLAG_CASTLE);
+        if (canCastle(pos, white, false))
+            moves[n++] = PackedMove.of(from, from - 2, PackedMove.PROMO_NONE, PackedMove.FLAG_CASTLE);
+        return n;
+    }
 
-        // Castling
-        if (white && from == 4) { // e1
-            // Kingside castling
-            if (pos.canCastleWK() && pos.isEmpty(5) && pos.isEmpty(6)) {
-                // Check that king doesn't move through or into check
-                if (!Attack.isSquareAttacked(pos, 4, false) &&
-                        !Attack.isSquareAttacked(pos, 5, false) &&
-                        !Attack.isSquareAttacked(pos, 6, false)) {
-                    out.add(new Move(4, 6, (char) 0));
-                }
-            }
-            // Queenside castling
-            if (pos.canCastleWQ() && pos.isEmpty(3) && pos.isEmpty(2) && pos.isEmpty(1)) {
-                if (!Attack.isSquareAttacked(pos, 4, false) &&
-                        !Attack.isSquareAttacked(pos, 3, false) &&
-                        !Attack.isSquareAttacked(pos, 2, false)) {
-                    out.add(new Move(4, 2, (char) 0));
-                }
-            }
-        } else if (!white && from == 60) { // e8
-            // Kingside castling
-            if (pos.canCastleBK() && pos.isEmpty(61) && pos.isEmpty(62)) {
-                if (!Attack.isSquareAttacked(pos, 60, true) &&
-                        !Attack.isSquareAttacked(pos, 61, true) &&
-                        !Attack.isSquareAttacked(pos, 62, true)) {
-                    out.add(new Move(60, 62, (char) 0));
-                }
-            }
-            // Queenside castling
-            if (pos.canCastleBQ() && pos.isEmpty(59) && pos.isEmpty(58) && pos.isEmpty(57)) {
-                if (!Attack.isSquareAttacked(pos, 60, true) &&
-                        !Attack.isSquareAttacked(pos, 59, true) &&
-                        !Attack.isSquareAttacked(pos, 58, true)) {
-                    out.add(new Move(60, 58, (char) 0));
-                }
-            }
+    /**
+     * Castling right held, squares between king and rook empty, and the king
+     * neither in check nor passing through or landing on an attacked square.
+     */
+    private static boolean canCastle(Position pos, boolean white, boolean kingside) {
+        int king = white ? 4 : 60;
+        boolean right = white
+                ? (kingside ? pos.canCastleWK() : pos.canCastleWQ())
+                : (kingside ? pos.canCastleBK() : pos.canCastleBQ());
+        if (!right)
+            return false;
+        if (kingside) {
+            if (!pos.isEmpty(king + 1) || !pos.isEmpty(king + 2))
+                return false;
+        } else if (!pos.isEmpty(king - 1) || !pos.isEmpty(king - 2) || !pos.isEmpty(king - 3)) {
+            return false;
         }
+        int step = kingside ? 1 : -1;
+        for (int sq = king, i = 0; i < 3; i++, sq += step) {
+            if (Attack.isSquareAttacked(pos, sq, !white))
+                return false;
+        }
+        return true;
     }
 
-    private static void genSlider(Position pos, int from, boolean white, List<Move> out, int[][] dirs) {
-        int r = from / 8;
-        int f = from % 8;
+    /**
+     * Check a 16-bit move code from the transposition table or a killer slot
+     * against pos.
+     *
+     * @return the full packed move with flags if it is pseudo-legal here,
+     *         otherwise PackedMove.NONE
+     */
+    public static int pseudoLegal(Position pos, int code) {
+        if (code == PackedMove.NONE)
+            return PackedMove.NONE;
+        int from = PackedMove.from(code);
+        int to = PackedMove.to(code);
+        int promo = PackedMove.promotion(code);
+        if (code != PackedMove.code(code) || promo > PackedMove.PROMO_QUEEN)
+            return PackedMove.NONE;
+        boolean white = pos.isWhiteToMove();
+        int piece = pos.pieceIndexAt(from);
+        if (piece == Position.NO_PIECE || Position.isWhitePiece(piece) != white)
+            return PackedMove.NONE;
+        long own = pos.occupancy(white);
+        long enemy = pos.occupancy(!white);
+        long toBit = 1L << to;
+        if ((own & toBit) != 0)
+            return PackedMove.NONE;
+        int capture = (enemy & toBit) != 0 ? PackedMove.FLAG_CAPTURE : 0;
 
-        for (int[] d : dirs) {
-            int nr = r;
-            int nf = f;
-            while (true) {
-                nr += d[1];
-                nf += d[0];
-                if (nr < 0 || nr > 7 || nf < 0 || nf > 7)
-                    break;
-
-                int to = nr * 8 + nf;
-                char target = pos.pieceAt(to);
-                if (target == '.') {
-                    out.add(new Move(from, to, (char) 0));
-                    continue;
-                }
-                if (isEnemy(target, white)) {
-                    out.add(new Move(from, to, (char) 0));
-                }
-                break; // blocked by any piece
-            }
+        int type = white ? piece : piece - Position.BLACK_PAWN;
+        if (type == Position.WHITE_PAWN)
+            return pseudoLegalPawn(pos, from, to, promo, white, capture);
+        if (promo != PackedMove.PROMO_NONE)
+            return PackedMove.NONE;
+
+        long occupied = own | enemy;
+        long attacks = switch (type) {
+            case Position.WHITE_KNIGHT -> Bitboards.KNIGHT_ATTACKS[from];
+            case Position.WHITE_BISHOP -> Bitboards.bishopAttacks(from, occupied);
+            case Position.WHITE_ROOK -> Bitboards.rookAttacks(from, occupied);
+            case Position.WHITE_QUEEN -> Bitboards.queenAttacks(from, occupied);
+            default -> Bitboards.KING_ATTACKS[from];
+        };
+        if ((attacks & toBit) != 0)
+            return code | capture;
+        if (type == Position.WHITE_KING && from == (white ? 4 : 60) && Math.abs(to - from) == 2
+                && canCastle(pos, white, to > from))
+            return code | PackedMove.FLAG_CASTLE;
+        return PackedMove.NONE;
+    }
+
+    /**
+     * Check a 16-bit move code against pos, including king safety, without
+     * making the move.
+     *
+     * @return the full packed move with flags if it is legal here, otherwise
+     *         PackedMove.NONE
+     */
+    public static int legal(Position pos, int code) {
+        int move = pseudoLegal(pos, code);
+        if (move == PackedMove.NONE)
+            return PackedMove.NONE;
+        boolean white = pos.isWhiteToMove();
+        long kingBit = pos.bitboard(white ? Position.WHITE_KING : Position.BLACK_KING);
+        if (kingBit == 0)
+            return PackedMove.NONE;
+        int king = Long.numberOfTrailingZeros(kingBit);
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        long occupied = pos.occupied();
+        long enemy = pos.occupancy(!white);
+        if (from == king) {
+            boolean safe = PackedMove.isCastle(move) // castling already checked its squares
+                    || (Attack.attackersTo(pos, to, occupied ^ kingBit) & enemy) == 0;
+            return safe ? move : PackedMove.NONE;
+        }
+
+        long checkers = Attack.attackersTo(pos, king, occupied) & enemy;
+        if (PackedMove.isEnPassant(move)) {
+            // Sliders are tested on the board after the capture; other checkers
+            // must be the captured pawn itself
+            int enemySide = white ? Position.BLACK_PAWN : Position.WHITE_PAWN;
+            long steppers = pos.bitboard(enemySide + Position.WHITE_PAWN) | pos.bitboard(enemySide + Position.WHITE_KNIGHT);
+            long captured = 1L << (white ? to - 8 : to + 8);
+            return (checkers & steppers & ~captured) == 0 && enPassantLegal(pos, move, king, white)
+                    ? move
+                    : PackedMove.NONE;
         }
+        if (checkers != 0) {
+            if ((checkers & (checkers - 1)) != 0)
+                return PackedMove.NONE;
+            long block = checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+            if ((block & (1L << to)) == 0)
+                return PackedMove.NONE;
+        }
+        if ((pinned(pos, king, white) & (1L << from)) != 0 && (Bitboards.LINE[king][from] & (1L << to)) == 0)
+            return PackedMove.NONE;
+        return move;
     }
 
-    private static boolean isEnemy(char piece, boolean whiteToMove) {
-        return whiteToMove ? Character.isLowerCase(piece) : Character.isUpperCase(piece);
+    private static int pseudoLegalPawn(Position pos, int from, int to, int promo, boolean white, int capture) {
+        int dir = white ? 8 : -8;
+        int lastRank = white ? 7 : 0;
+        if ((to / 8 == lastRank) != (promo != PackedMove.PROMO_NONE))
+            return PackedMove.NONE;
+        int code = PackedMove.of(from, to, promo, 0);
+
+        if (to == from + dir)
+            return pos.isEmpty(to) ? code : PackedMove.NONE;
+        if (to == from + 2 * dir)
+            return from / 8 == (white ? 1 : 6) && pos.isEmpty(from + dir) && pos.isEmpty(to)
+                    ? code | PackedMove.FLAG_DOUBLE_PUSH
+                    : PackedMove.NONE;
+        if ((Bitboards.PAWN_ATTACKS[white ? 0 : 1][from] & (1L << to)) == 0)
+            return PackedMove.NONE;
+        if (capture != 0)
+            return code | capture;
+        if (to == pos.epSquare())
+            return code | PackedMove.FLAG_CAPTURE | PackedMove.FLAG_EN_PASSANT;
+        return PackedMove.NONE;
     }
 
     public static List<Move> generateLegal(Position pos) {
-        List<Move> pseudo = generatePseudoLegal(pos);
-        List<Move> legal = new java.util.ArrayList<>();
+        int[] buf = new int[MAX_MOVES];
+        return toMoves(buf, generateLegal(pos, buf));
+    }
+
+    /**
+     * Write the legal packed moves for the side to move into moves, starting
+     * at index 0. No move is made, so pos is only read.
+     *
+     * @return number of moves written
+     */
+    public static int generateLegal(Position pos, int[] moves) {
+        return generateLegal(pos, moves, 0, CAPTURES | QUIETS | PROMOTIONS);
+    }
+
+    /**
+     * Legal moves of the given kinds without making any of them. Checkers
+     * and pinned pieces are found once: in check, other pieces may only
+     * capture a single checker or block its line, and a pinned piece may only
+     * move along its pin. King moves are tested against the board with the
+     * king lifted off, and en passant, which removes two pieces from a line,
+     * is tested for a discovered slider attack.
+     */
+    private static int generateLegal(Position pos, int[] moves, int start, int kinds) {
+        boolean white = pos.isWhiteToMove();
+        long kingBit = pos.bitboard(white ? Position.WHITE_KING : Position.BLACK_KING);
+        if (kingBit == 0)
+            return start; // nothing can be legal without a king to keep out of check
+        int king = Long.numberOfTrailingZeros(kingBit);
+        long occupied = pos.occupied();
 
-        boolean movingWhite = pos.isWhiteToMove();
-        for (Move m : pseudo) {
-            Position next = pos.apply(m);
+        long checkers = Attack.attackersTo(pos, king, occupied) & pos.occupancy(!white);
+        long mask;
+        if (checkers == 0)
+            mask = ~0L;
+        else if ((checkers & (checkers - 1)) != 0)
+            mask = 0L; // double check: only the king may move
+        else
+            mask = checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long pinned = pinned(pos, king, white);
 
-            int kingSq = next.findKingSquare(movingWhite);
-            if (kingSq < 0)
-                continue; // invalid position; ignore
+        int end = generate(pos, moves, start, kinds, mask);
+        int n = start;
+        for (int i = start; i < end; i++) {
+            int m = moves[i];
+            int from = PackedMove.from(m);
+            boolean legal;
+            if (from == king)
+                legal = PackedMove.isCastle(m) // castling already checked its squares
+                        || (Attack.attackersTo(pos, PackedMove.to(m), occupied ^ kingBit)
+                                & pos.occupancy(!white)) == 0;
+            else if (PackedMove.isEnPassant(m))
+                legal = enPassantLegal(pos, m, king, white);
+            else
+                legal = (pinned & (1L << from)) == 0 || (Bitboards.LINE[king][from] & (1L << PackedMove.to(m))) != 0;
+            if (legal)
+                moves[n++] = m;
+        }
+        return n;
+    }
 
-            // after move, our king must NOT be attacked by opponent
-            boolean attacked = Attack.isSquareAttacked(next, kingSq, !movingWhite);
-            if (!attacked)
-                legal.add(m);
+    /** Pieces of the side to move that alone shield their king from an enemy slider. */
+    private static long pinned(Position pos, int king, boolean white) {
+        int enemySide = white ? Position.BLACK_PAWN : Position.WHITE_PAWN;
+        long queens = pos.bitboard(enemySide + Position.WHITE_QUEEN);
+        long enemy = pos.occupancy(!white);
+        // Sliders that would attack the king if none of our pieces stood in the way
+        long snipers = (Bitboards.rookAttacks(king, enemy) & (pos.bitboard(enemySide + Position.WHITE_ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, enemy) & (pos.bitboard(enemySide + Position.WHITE_BISHOP) | queens));
+        long occupied = pos.occupied();
+        long pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long between = Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(snipers)] & occupied;
+            if (between != 0 && (between & (between - 1)) == 0)
+                pinned |= between & pos.occupancy(white);
         }
-        return legal;
+        return pinned;
     }
 
-}
\ No newline at end of file
+    /**
+     * En passant empties two squares at once, so a pin along the rank through
+     * both pawns is not caught by the pinned-piece test. Check the king
+     * against enemy sliders on the board as it will be after the capture.
+     */
+    private static boolean enPassantLegal(Position pos, int move, int king, boolean white) {
+        int to = PackedMove.to(move);
+        int captured = white ? to - 8 : to + 8;
+        long occupied = (pos.occupied() ^ (1L << PackedMove.from(move)) ^ (1L << captured)) | (1L << to);
+        int enemySide = white ? Position.BLACK_PAWN : Position.WHITE_PAWN;
+        long queens = pos.bitboard(enemySide + Position.WHITE_QUEEN);
+        return (Bitboards.rookAttacks(king, occupied) & (pos.bitboard(enemySide + Position.WHITE_ROOK) | queens)) == 0
+                && (Bitboards.bishopAttacks(king, occupied)
+                        & (pos.bitboard(enemySide + Position.WHITE_BISHOP) | queens)) == 0;
+    }
+
+    private static List<Move> toMoves(int[] moves, int count) {
+        List<Move> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            out.add(PackedMove.toMove(moves[i]));
+        return out;
+    }
+}
@@ -134,6 +134,32 @@ public final class PST {
                         -50, -30, -30, -30, -30, -30, -30, -50
         };
 
+        /** Material per piece type, pawn to king, in centipawns. */
+        public static final int[] PIECE_VALUES = { 100, 300, 300, 500, 900, 0 };
+
+        /** Game phase weight per piece type; the starting material sums to PHASE_MAX. */
+        public static final int[] PHASE_WEIGHTS = { 0, 1, 1, 2, 4, 0 };
+        public static final int PHASE_MAX = 24;
+
+        // Material plus table value per piece index and square, negated for black,
+        // at the middlegame (EARLY) and endgame (LATE) ends of the taper
+        static final int[][] MG = new int[12][64];
+        static final int[][] EG = new int[12][64];
+
+        static {
+                int[][] early = { PAWN_EARLY, KNIGHT_EARLY, BISHOP_EARLY, ROOK_EARLY, QUEEN_EARLY, KING_EARLY };
+                int[][] late = { PAWN_LATE, KNIGHT_LATE, BISHOP_LATE, ROOK_LATE, QUEEN_LATE, KING_LATE };
+                for (int type = 0; type < 6; type++) {
+                        for (int sq = 0; sq < 64; sq++) {
+                                // Same lookup as value(): white by square, black mirrored
+                                MG[type][sq] = PIECE_VALUES[type] + early[type][sq];
+                                EG[type][sq] = PIECE_VALUES[type] + late[type][sq];
+                                MG[type + 6][sq] = -(PIECE_VALUES[type] + early[type][sq ^ 56]);
+                                EG[type + 6][sq] = -(PIECE_VALUES[type] + late[type][sq ^ 56]);
+                        }
+                }
+        }
+
         public static int value(int square, boolean white, char piece, boolean endgame) {
                 int[] pst;
                 switch (Character.toLowerCase(piece)) {
@@ -0,0 +1,82 @@
+package core;
+
+/**
+ * Moves packed into an int, used by the generator and search so that no
+ * objects are allocated per move. Move is the boundary type for UciMove.
+ *
+ * Layout (low to high): from 6 bits, to 6 bits, promotion 4 bits
+ * (0 none, 1 n, 2 b, 3 r, 4 q), then flag bits. The low 16 bits alone
+ * identify the move and are what the transposition table stores.
+ */
+public final class PackedMove {
+    private PackedMove() {
+    }
+
+    public static final int NONE = 0; // a1a1, never a real move
+
+    public static final int PROMO_NONE = 0;
+    public static final int PROMO_KNIGHT = 1;
+    public static final int PROMO_BISHOP = 2;
+    public static final int PROMO_ROOK = 3;
+    public static final int PROMO_QUEEN = 4;
+
+    public static final int FLAG_CAPTURE = 1 << 16;
+    public static final int FLAG_EN_PASSANT = 1 << 17;
+    public static final int FLAG_CASTLE = 1 << 18;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 19;
+
+    private static final String PROMO_CHARS = " nbrq";
+
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | to << 6 | promotion << 12 | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    /** Lowercase promotion letter as used by UCI, or 0. */
+    public static char promotionChar(int move) {
+        int p = promotion(move);
+        return p == PROMO_NONE ? 0 : PROMO_CHARS.charAt(p);
+    }
+
+    /** The 16 bits that identify the move, without flags. */
+    public static int code(int move) {
+        return move & 0xFFFF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & FLAG_CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & FLAG_EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & FLAG_CASTLE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != PROMO_NONE;
+    }
+
+    public static Move toMove(int move) {
+        return new Move(from(move), to(move), promotionChar(move));
+    }
+
+    /** Pack a boundary Move without flags; only its 16-bit code is meaningful. */
+    public static int fromMove(Move m) {
+        int promo = m.isPromotion() ? PROMO_CHARS.indexOf(Character.toLowerCase(m.promotion())) : PROMO_NONE;
+        return of(m.from(), m.to(), Math.max(promo, PROMO_NONE), 0);
+    }
+}
@@ -0,0 +1,97 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Move-path enumeration for checking the move generator and measuring its
+ * throughput. Leaf nodes are bulk-counted: at depth 1 the legal move count
+ * is used without making the moves.
+ */
+public final class Perft {
+    private Perft() {
+    }
+
+    /** Node counts per root move. */
+    public record DivideResult(List<Move> moves, long[] nodes, long total) {
+    }
+
+    public static long perft(Position pos, int depth) {
+        if (depth <= 0)
+            return 1;
+        Position board = pos.copy();
+        return count(board, depth, newBuffers(depth), 0);
+    }
+
+    /**
+     * Count leaf nodes below each root move. With threads > 1 the root moves
+     * are shared out to worker threads, each on its own copy of the position.
+     */
+    public static DivideResult divide(Position pos, int depth, int threads) {
+        int[] rootMoves = new int[MoveGen.MAX_MOVES];
+        int rootCount = MoveGen.generateLegal(pos, rootMoves);
+        long[] nodes = new long[rootCount];
+
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            Position board = pos.copy();
+            int[][] buffers = newBuffers(depth);
+            int i;
+            while ((i = next.getAndIncrement()) < rootCount) {
+                if (depth <= 1) {
+                    nodes[i] = 1;
+                    continue;
+                }
+                board.makeMove(rootMoves[i]);
+                nodes[i] = count(board, depth - 1, buffers, 1);
+                board.unmakeMove();
+            }
+        };
+
+        int workers = Math.max(1, Math.min(threads, rootCount));
+        if (workers == 1) {
+            worker.run();
+        } else {
+            Thread[] pool = new Thread[workers];
+            for (int t = 0; t < workers; t++) {
+                pool[t] = new Thread(worker, "perft-" + t);
+                pool[t].start();
+            }
+            for (Thread t : pool) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<Move> moves = new ArrayList<>(rootCount);
+        long total = 0;
+        for (int i = 0; i < rootCount; i++) {
+            moves.add(PackedMove.toMove(rootMoves[i]));
+            total += nodes[i];
+        }
+        return new DivideResult(moves, nodes, total);
+    }
+
+    private static long count(Position pos, int depth, int[][] buffers, int ply) {
+        int[] moves = buffers[ply];
+        int n = MoveGen.generateLegal(pos, moves);
+        if (depth == 1)
+            return n;
+
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            pos.makeMove(moves[i]);
+            nodes += count(pos, depth - 1, buffers, ply + 1);
+            pos.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static int[][] newBuffers(int depth) {
+        return new int[Math.max(depth, 1) + 1][MoveGen.MAX_MOVES];
+    }
+}
@@ -3,24 +3,102 @@ package core;
 import java.util.Arrays;
 
 public final class Position {
-    private final char[] board; // '.' empty, uppercase white, lowercase black
-    private final boolean whiteToMove;
-    private final boolean wk, wq, bk, bq; // castling rights
-    private final int epSquare; // -1 if none, else a3=16..h3=23 or a6=40..h6=47
-    private final int halfmoveClock; // fifty-move rule
-    private final int fullmoveNumber; // starts at 1
-
-    private Position(char[] board, boolean whiteToMove, boolean wk, boolean wq, boolean bk, boolean bq,
-            int epSquare, int halfmoveClock, int fullmoveNumber) {
-        this.board = board;
+    // Piece indices into the bitboard array: white P N B R Q K, then black p n b r q k.
+    public static final int WHITE_PAWN = 0;
+    public static final int WHITE_KNIGHT = 1;
+    public static final int WHITE_BISHOP = 2;
+    public static final int WHITE_ROOK = 3;
+    public static final int WHITE_QUEEN = 4;
+    public static final int WHITE_KING = 5;
+    public static final int BLACK_PAWN = 6;
+    public static final int BLACK_KNIGHT = 7;
+    public static final int BLACK_BISHOP = 8;
+    public static final int BLACK_ROOK = 9;
+    public static final int BLACK_QUEEN = 10;
+    public static final int BLACK_KING = 11;
+    public static final int NO_PIECE = -1;
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    // Castling right bits
+    public static final int CASTLE_WK = 1;
+    public static final int CASTLE_WQ = 2;
+    public static final int CASTLE_BK = 4;
+    public static final int CASTLE_BQ = 8;
+
+    // Rights that survive a move touching each square (king or rook home squares clear bits).
+    private static final int[] CASTLE_KEEP = new int[64];
+
+    static {
+        Arrays.fill(CASTLE_KEEP, CASTLE_WK | CASTLE_WQ | CASTLE_BK | CASTLE_BQ);
+        CASTLE_KEEP[4] &= ~(CASTLE_WK | CASTLE_WQ); // e1
+        CASTLE_KEEP[0] &= ~CASTLE_WQ; // a1
+        CASTLE_KEEP[7] &= ~CASTLE_WK; // h1
+        CASTLE_KEEP[60] &= ~(CASTLE_BK | CASTLE_BQ); // e8
+        CASTLE_KEEP[56] &= ~CASTLE_BQ; // a8
+        CASTLE_KEEP[63] &= ~CASTLE_BK; // h8
+    }
+
+    private final long[] pieces; // one bitboard per piece index
+    private long whiteOcc, blackOcc;
+    private final byte[] mailbox; // piece index per square, NO_PIECE if empty
+    private boolean whiteToMove;
+    private int castling; // CASTLE_* bits
+    private int epSquare; // -1 if none, else a3=16..h3=23 or a6=40..h6=47
+    private int halfmoveClock; // fifty-move rule
+    private int fullmoveNumber; // starts at 1
+    private long hash; // Zobrist key, maintained incrementally
+    private long pawnHash; // Zobrist key over pawns only
+    // Material + PST sums (white minus black) for both ends of the taper, and
+    // the game phase from PST.PHASE_WEIGHTS, all maintained incrementally
+    private int mgScore, egScore, phase;
+
+    // Undo records for makeMove/unmakeMove, one packed long per move made,
+    // with the key before each move kept alongside.
+    private long[] undo = new long[16];
+    private long[] undoHash = new long[16];
+    private int undoCount;
+
+    private Position(long[] pieces, byte[] mailbox, boolean whiteToMove, int castling, int epSquare,
+            int halfmoveClock, int fullmoveNumber) {
+        this.pieces = pieces;
+        this.mailbox = mailbox;
+        for (int i = WHITE_PAWN; i <= WHITE_KING; i++)
+            whiteOcc |= pieces[i];
+        for (int i = BLACK_PAWN; i <= BLACK_KING; i++)
+            blackOcc |= pieces[i];
         this.whiteToMove = whiteToMove;
-        this.wk = wk;
-        this.wq = wq;
-        this.bk = bk;
-        this.bq = bq;
+        this.castling = castling;
         this.epSquare = epSquare;
         this.halfmoveClock = halfmoveClock;
         this.fullmoveNumber = fullmoveNumber;
+        this.hash = Zobrist.compute(this);
+        this.pawnHash = Zobrist.computePawns(this);
+        for (int piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+            for (long bb = pieces[piece]; bb != 0; bb &= bb - 1)
+                addScore(piece, Long.numberOfTrailingZeros(bb));
+        }
+    }
+
+    /** Copy of other, taking its incrementally maintained state as is. */
+    private Position(Position other) {
+        pieces = other.pieces.clone();
+        mailbox = other.mailbox.clone();
+        whiteOcc = other.whiteOcc;
+        blackOcc = other.blackOcc;
+        whiteToMove = other.whiteToMove;
+        castling = other.castling;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        hash = other.hash;
+        pawnHash = other.pawnHash;
+        mgScore = other.mgScore;
+        egScore = other.egScore;
+        phase = other.phase;
+        undo = Arrays.copyOf(other.undo, Math.max(16, other.undoCount + 16));
+        undoHash = Arrays.copyOf(other.undoHash, undo.length);
+        undoCount = other.undoCount;
     }
 
     public static Position startPos() {
@@ -32,8 +110,8 @@ public final class Position {
         if (parts.length != 6)
             return startPos();
 
-        char[] b = new char[64];
-        Arrays.fill(b, '.');
+        long[] bb = new long[12];
+        byte[] mb = emptyMailbox();
 
         String placement = parts[0];
         boolean wtm = parts[1].equals("w");
@@ -53,7 +131,11 @@ public final class Position {
                 } else {
                     int rankFromBottom = 7 - r;
                     int sq = rankFromBottom * 8 + file;
-                    b[sq] = c;
+                    int piece = pieceIndex(c);
+                    if (piece != NO_PIECE && sq < 64) {
+                        bb[piece] |= 1L << sq;
+                        mb[sq] = (byte) piece;
+                    }
                     file++;
                 }
             }
@@ -61,10 +143,15 @@ public final class Position {
 
         // Parse castling rights
         String castling = parts[2];
-        boolean wkCastle = castling.contains("K");
-        boolean wqCastle = castling.contains("Q");
-        boolean bkCastle = castling.contains("k");
-        boolean bqCastle = castling.contains("q");
+        int rights = 0;
+        if (castling.contains("K"))
+            rights |= CASTLE_WK;
+        if (castling.contains("Q"))
+            rights |= CASTLE_WQ;
+        if (castling.contains("k"))
+            rights |= CASTLE_BK;
+        if (castling.contains("q"))
+            rights |= CASTLE_BQ;
 
         // Parse en-passant square
         String epStr = parts[3];
@@ -86,11 +173,28 @@ public final class Position {
         } catch (NumberFormatException ignored) {
         }
 
-        return new Position(b, wtm, wkCastle, wqCastle, bkCastle, bqCastle, ep, halfmove, fullmove);
+        return new Position(bb, mb, wtm, rights, ep, halfmove, fullmove);
     }
 
     public char pieceAt(int sq) {
-        return board[sq];
+        return pieceChar(mailbox[sq]);
+    }
+
+    /** Piece index on sq, or NO_PIECE if the square is empty. */
+    public int pieceIndexAt(int sq) {
+        return mailbox[sq];
+    }
+
+    public long bitboard(int piece) {
+        return pieces[piece];
+    }
+
+    public long occupancy(boolean white) {
+        return white ? whiteOcc : blackOcc;
+    }
+
+    public long occupied() {
+        return whiteOcc | blackOcc;
     }
 
     public boolean isWhiteToMove() {
@@ -98,23 +202,53 @@ public final class Position {
     }
 
     public boolean isEmpty(int sq) {
-        return board[sq] == '.';
+        return mailbox[sq] == NO_PIECE;
     }
 
     public boolean canCastleWK() {
-        return wk;
+        return (castling & CASTLE_WK) != 0;
     }
 
     public boolean canCastleWQ() {
-        return wq;
+        return (castling & CASTLE_WQ) != 0;
     }
 
     public boolean canCastleBK() {
-        return bk;
+        return (castling & CASTLE_BK) != 0;
     }
 
     public boolean canCastleBQ() {
-        return bq;
+        return (castling & CASTLE_BQ) != 0;
+    }
+
+    /** Castling rights as a mask of CASTLE_* bits. */
+    public int castlingRights() {
+        return castling;
+    }
+
+    /** Middlegame material + PST, white minus black. */
+    public int mgScore() {
+        return mgScore;
+    }
+
+    /** Endgame material + PST, white minus black. */
+    public int egScore() {
+        return egScore;
+    }
+
+    /** Sum of PST.PHASE_WEIGHTS over pieces on the board; can exceed PHASE_MAX after promotions. */
+    public int phase() {
+        return phase;
+    }
+
+    /** 64-bit Zobrist key of this position. */
+    public long hash() {
+        return hash;
+    }
+
+    /** Zobrist key of the pawns alone; equal for positions with the same pawn structure. */
+    public long pawnHash() {
+        return pawnHash;
     }
 
     public int epSquare() {
@@ -129,121 +263,277 @@ public final class Position {
         return fullmoveNumber;
     }
 
+    /**
+     * Return the position after m, leaving this position unchanged.
+     * Used by the UCI layer; the search uses makeMove/unmakeMove instead.
+     */
     public Position apply(Move m) {
-        char[] nb = board.clone();
-        char moving = nb[m.from()];
-        char captured = nb[m.to()];
-
-        // Update castling rights
-        boolean nwk = wk, nwq = wq, nbk = bk, nbq = bq;
-
-        // King moves lose all castling rights for that side
-        if (moving == 'K') {
-            nwk = false;
-            nwq = false;
-        } else if (moving == 'k') {
-            nbk = false;
-            nbq = false;
-        }
+        Position next = copy();
+        next.makeMove(m);
+        return next;
+    }
 
-        // Rook moves from starting square lose that side's castling
-        if (moving == 'R') {
-            if (m.from() == 0)
-                nwq = false; // a1
-            if (m.from() == 7)
-                nwk = false; // h1
-        } else if (moving == 'r') {
-            if (m.from() == 56)
-                nbq = false; // a8
-            if (m.from() == 63)
-                nbk = false; // h8
-        }
+    /**
+     * Independent copy of this position. The move history comes along, so
+     * the copy still sees repetitions of earlier positions.
+     */
+    public Position copy() {
+        return new Position(this);
+    }
 
-        // Rook captured on starting square loses that side's castling
-        if (captured == 'R') {
-            if (m.to() == 0)
-                nwq = false; // a1
-            if (m.to() == 7)
-                nwk = false; // h1
-        } else if (captured == 'r') {
-            if (m.to() == 56)
-                nbq = false; // a8
-            if (m.to() == 63)
-                nbk = false; // h8
-        }
+    /**
+     * Play m in place. Every call must be matched by unmakeMove() in reverse
+     * order.
+     */
+    public void makeMove(Move m) {
+        makeMove(PackedMove.fromMove(m));
+    }
 
-        // Detect castling move and move rook accordingly
-        boolean isCastling = false;
-        if (moving == 'K' && m.from() == 4) {
-            if (m.to() == 6) { // kingside castling e1-g1
-                nb[7] = '.'; // remove rook from h1
-                nb[5] = 'R'; // place rook on f1
-                isCastling = true;
-            } else if (m.to() == 2) { // queenside castling e1-c1
-                nb[0] = '.'; // remove rook from a1
-                nb[3] = 'R'; // place rook on d1
-                isCastling = true;
-            }
-        } else if (moving == 'k' && m.from() == 60) {
-            if (m.to() == 62) { // kingside castling e8-g8
-                nb[63] = '.'; // remove rook from h8
-                nb[61] = 'r'; // place rook on f8
-                isCastling = true;
-            } else if (m.to() == 58) { // queenside castling e8-c8
-                nb[56] = '.'; // remove rook from a8
-                nb[59] = 'r'; // place rook on d8
-                isCastling = true;
-            }
+    /**
+     * Play a packed move in place. Castling and en passant are recognized
+     * from the board, so only from, to and promotion need to be set.
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int moving = mailbox[from];
+        boolean pawnMove = moving == WHITE_PAWN || moving == BLACK_PAWN;
+
+        // Handle en-passant capture: the captured pawn sits behind the destination
+        boolean isEnPassant = pawnMove && to == epSquare;
+        int capturedSq = isEnPassant ? (whiteToMove ? to - 8 : to + 8) : to;
+        int captured = mailbox[capturedSq];
+
+        int placed = moving;
+        int promo = PackedMove.promotion(move);
+        if (promo != PackedMove.PROMO_NONE) {
+            // PROMO_KNIGHT..PROMO_QUEEN line up with WHITE_KNIGHT..WHITE_QUEEN
+            placed = (whiteToMove ? WHITE_PAWN : BLACK_PAWN) + promo;
         }
 
-        // Handle en-passant capture
-        boolean isEnPassant = false;
-        if ((moving == 'P' || moving == 'p') && m.to() == epSquare && epSquare != -1) {
-            // Remove the captured pawn behind the destination
-            int capturedPawnSq = whiteToMove ? (epSquare - 8) : (epSquare + 8);
-            nb[capturedPawnSq] = '.';
-            isEnPassant = true;
-        }
+        pushUndo(packUndo(from, to, moving, captured, isEnPassant));
+
+        // Piece keys are updated by put/remove; take out the old state keys here
+        hash ^= Zobrist.CASTLING[castling];
+        if (epSquare != -1)
+            hash ^= Zobrist.EP_FILE[epSquare % 8];
 
         // Make the move
-        nb[m.from()] = '.';
-        if (m.isPromotion()) {
-            char promo = m.promotion(); // expected: q r b n (lowercase from UCI)
-            nb[m.to()] = whiteToMove ? Character.toUpperCase(promo) : Character.toLowerCase(promo);
-        } else {
-            nb[m.to()] = moving;
+        if (captured != NO_PIECE)
+            removePiece(capturedSq);
+        removePiece(from);
+        putPiece(placed, to);
+
+        // Detect castling move and move rook accordingly
+        if (moving == WHITE_KING && from == 4) {
+            if (to == 6) // kingside castling e1-g1
+                movePiece(7, 5); // rook h1-f1
+            else if (to == 2) // queenside castling e1-c1
+                movePiece(0, 3); // rook a1-d1
+        } else if (moving == BLACK_KING && from == 60) {
+            if (to == 62) // kingside castling e8-g8
+                movePiece(63, 61); // rook h8-f8
+            else if (to == 58) // queenside castling e8-c8
+                movePiece(56, 59); // rook a8-d8
         }
 
-        // Calculate new en-passant square
-        int newEp = -1;
-        if ((moving == 'P' || moving == 'p')) {
-            int distance = Math.abs(m.to() - m.from());
-            if (distance == 16) { // double pawn push
-                newEp = whiteToMove ? (m.from() + 8) : (m.from() - 8);
-            }
+        // King or rook leaving home, or a rook captured at home, loses that right
+        castling &= CASTLE_KEEP[from] & CASTLE_KEEP[to];
+
+        // New en-passant square after a double pawn push
+        epSquare = (pawnMove && Math.abs(to - from) == 16) ? (from + to) / 2 : -1;
+
+        // Halfmove clock resets on pawn move or capture
+        halfmoveClock = (pawnMove || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+
+        // Fullmove number increments after black's move
+        if (!whiteToMove)
+            fullmoveNumber++;
+        whiteToMove = !whiteToMove;
+
+        hash ^= Zobrist.CASTLING[castling] ^ Zobrist.BLACK_TO_MOVE;
+        if (epSquare != -1)
+            hash ^= Zobrist.EP_FILE[epSquare % 8];
+    }
+
+    /** Take back the last move played with makeMove. */
+    public void unmakeMove() {
+        long u = undo[--undoCount];
+        int from = (int) (u & 63);
+        int to = (int) ((u >>> 6) & 63);
+        int moving = unpackPiece(u >>> 12);
+        int captured = unpackPiece(u >>> 16);
+        boolean isEnPassant = ((u >>> 20) & 1) != 0;
+
+        whiteToMove = !whiteToMove;
+        if (!whiteToMove)
+            fullmoveNumber--;
+        castling = (int) ((u >>> 21) & 15);
+        epSquare = (int) ((u >>> 25) & 127) - 1;
+        halfmoveClock = (int) (u >>> 32);
+
+        // Put a castling rook back home
+        if (moving == WHITE_KING && from == 4) {
+            if (to == 6)
+                movePiece(5, 7);
+            else if (to == 2)
+                movePiece(3, 0);
+        } else if (moving == BLACK_KING && from == 60) {
+            if (to == 62)
+                movePiece(61, 63);
+            else if (to == 58)
+                movePiece(59, 56);
         }
 
-        // Update halfmove clock (reset on pawn move or capture)
-        int newHalfmove = halfmoveClock + 1;
-        if ((moving == 'P' || moving == 'p') || captured != '.' || isEnPassant) {
-            newHalfmove = 0;
+        removePiece(to);
+        putPiece(moving, from);
+        if (captured != NO_PIECE)
+            putPiece(captured, isEnPassant ? (whiteToMove ? to - 8 : to + 8) : to);
+        hash = undoHash[undoCount];
+    }
+
+    /**
+     * Pass the turn without moving, for null-move pruning. Must be matched
+     * by unmakeNullMove(); not valid while in check.
+     */
+    public void makeNullMove() {
+        pushUndo(packUndo(0, 0, NO_PIECE, NO_PIECE, false));
+
+        if (epSquare != -1)
+            hash ^= Zobrist.EP_FILE[epSquare % 8];
+        epSquare = -1;
+        // A pass counts towards the fifty-move rule; isRepetition stops at it
+        halfmoveClock++;
+        if (!whiteToMove)
+            fullmoveNumber++;
+        whiteToMove = !whiteToMove;
+        hash ^= Zobrist.BLACK_TO_MOVE;
+    }
+
+    public void unmakeNullMove() {
+        long u = undo[--undoCount];
+        whiteToMove = !whiteToMove;
+        if (!whiteToMove)
+            fullmoveNumber--;
+        epSquare = (int) ((u >>> 25) & 127) - 1;
+        halfmoveClock = (int) (u >>> 32);
+        hash = undoHash[undoCount];
+    }
+
+    /**
+     * True if this position, with the same side to move, occurred earlier in
+     * the move history. Only positions since the last capture or pawn move
+     * can repeat, so at most halfmoveClock keys are compared. Positions
+     * before a null move are not real history and are never matched.
+     */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, undoCount - halfmoveClock);
+        for (int i = undoCount - 1; i >= oldest; i--) {
+            long u = undo[i];
+            if ((u & 63) == ((u >>> 6) & 63))
+                return false; // null move: from and to are both 0
+            if (((undoCount - i) & 1) == 0 && undoCount - i >= 4 && undoHash[i] == hash)
+                return true;
         }
+        return false;
+    }
 
-        // Update fullmove number (increments after black's move)
-        int newFullmove = fullmoveNumber;
-        if (!whiteToMove) {
-            newFullmove++;
+    private void pushUndo(long record) {
+        if (undoCount == undo.length) {
+            undo = Arrays.copyOf(undo, undo.length * 2);
+            undoHash = Arrays.copyOf(undoHash, undo.length);
         }
+        undoHash[undoCount] = hash;
+        undo[undoCount++] = record;
+    }
+
+    private long packUndo(int from, int to, int moving, int captured, boolean isEnPassant) {
+        return from
+                | (long) to << 6
+                | (long) (moving & 15) << 12
+                | (long) (captured & 15) << 16
+                | (isEnPassant ? 1L : 0L) << 20
+                | (long) castling << 21
+                | (long) (epSquare + 1) << 25
+                | (long) halfmoveClock << 32;
+    }
 
-        return new Position(nb, !whiteToMove, nwk, nwq, nbk, nbq, newEp, newHalfmove, newFullmove);
+    private static int unpackPiece(long bits) {
+        int p = (int) (bits & 15);
+        return p == 15 ? NO_PIECE : p;
     }
 
+    /**
+     * Square of the given king, or -1 if the board has none. The piece
+     * bitboards double as piece lists, so this is a single bit scan.
+     */
     public int findKingSquare(boolean whiteKing) {
-        char k = whiteKing ? 'K' : 'k';
-        for (int sq = 0; sq < 64; sq++) {
-            if (board[sq] == k)
-                return sq;
-        }
-        return -1;
+        long king = pieces[whiteKing ? WHITE_KING : BLACK_KING];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /** Piece index for a FEN piece letter, or NO_PIECE. */
+    public static int pieceIndex(char c) {
+        return PIECE_CHARS.indexOf(c);
+    }
+
+    /** FEN piece letter for a piece index. */
+    public static char pieceChar(int piece) {
+        return piece == NO_PIECE ? '.' : PIECE_CHARS.charAt(piece);
+    }
+
+    public static boolean isWhitePiece(int piece) {
+        return piece >= WHITE_PAWN && piece <= WHITE_KING;
+    }
+
+    private static byte[] emptyMailbox() {
+        byte[] mb = new byte[64];
+        Arrays.fill(mb, (byte) NO_PIECE);
+        return mb;
+    }
+
+    private void putPiece(int piece, int sq) {
+        long b = 1L << sq;
+        pieces[piece] |= b;
+        if (isWhitePiece(piece))
+            whiteOcc |= b;
+        else
+            blackOcc |= b;
+        mailbox[sq] = (byte) piece;
+        hash ^= Zobrist.PIECE_SQUARE[piece][sq];
+        if (piece == WHITE_PAWN || piece == BLACK_PAWN)
+            pawnHash ^= Zobrist.PIECE_SQUARE[piece][sq];
+        addScore(piece, sq);
+    }
+
+    private void removePiece(int sq) {
+        int piece = mailbox[sq];
+        if (piece == NO_PIECE)
+            return;
+        long b = ~(1L << sq);
+        pieces[piece] &= b;
+        whiteOcc &= b;
+        blackOcc &= b;
+        mailbox[sq] = (byte) NO_PIECE;
+        hash ^= Zobrist.PIECE_SQUARE[piece][sq];
+        if (piece == WHITE_PAWN || piece == BLACK_PAWN)
+            pawnHash ^= Zobrist.PIECE_SQUARE[piece][sq];
+        mgScore -= PST.MG[piece][sq];
+        egScore -= PST.EG[piece][sq];
+        phase -= PST.PHASE_WEIGHTS[piece % 6];
+    }
+
+    private void addScore(int piece, int sq) {
+        mgScore += PST.MG[piece][sq];
+        egScore += PST.EG[piece][sq];
+        phase += PST.PHASE_WEIGHTS[piece % 6];
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        if (piece == NO_PIECE)
+            return;
+        removePiece(from);
+        putPiece(piece, to);
     }
-}
\ No newline at end of file
+}
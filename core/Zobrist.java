@@ -0,0 +1,75 @@
+package core;
+
+/**
+ * Zobrist hash keys. A position's key is the XOR of one key per piece on a
+ * square, plus side to move, castling rights and en-passant file.
+ */
+public final class Zobrist {
+    private Zobrist() {
+    }
+
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[16]; // indexed by Position.CASTLE_* mask
+    static final long[] EP_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        // Fixed seed so keys (and anything keyed on them) are stable between runs
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int p = 0; p < 12; p++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed = next(seed);
+                PIECE_SQUARE[p][sq] = mix(seed);
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            seed = next(seed);
+            CASTLING[i] = mix(seed);
+        }
+        for (int f = 0; f < 8; f++) {
+            seed = next(seed);
+            EP_FILE[f] = mix(seed);
+        }
+        seed = next(seed);
+        BLACK_TO_MOVE = mix(seed);
+    }
+
+    /**
+     * Compute the key from scratch. Position maintains its key incrementally;
+     * this is for initialization and verification.
+     */
+    public static long compute(Position pos) {
+        long h = 0L;
+        for (int p = Position.WHITE_PAWN; p <= Position.BLACK_KING; p++) {
+            for (long bb = pos.bitboard(p); bb != 0; bb &= bb - 1)
+                h ^= PIECE_SQUARE[p][Long.numberOfTrailingZeros(bb)];
+        }
+        h ^= CASTLING[pos.castlingRights()];
+        if (pos.epSquare() != -1)
+            h ^= EP_FILE[pos.epSquare() % 8];
+        if (!pos.isWhiteToMove())
+            h ^= BLACK_TO_MOVE;
+        return h;
+    }
+
+    /** Key over pawns only, for caching pawn-structure evaluation. */
+    public static long computePawns(Position pos) {
+        long h = 0L;
+        for (int p : new int[] { Position.WHITE_PAWN, Position.BLACK_PAWN }) {
+            for (long bb = pos.bitboard(p); bb != 0; bb &= bb - 1)
+                h ^= PIECE_SQUARE[p][Long.numberOfTrailingZeros(bb)];
+        }
+        return h;
+    }
+
+    // splitmix64
+    private static long next(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -5,5 +5,9 @@ import java.util.List;
 public record AnalysisResult(
         String bestMoveUci,
         int evalCp,
-        List<String> pv) {
+        List<String> pv,
+        int depth,
+        long nodes,
+        long timeMs,
+        List<Long> threadNodes) {
 }
@@ -1,37 +1,284 @@
 package engine;
 
 import core.Move;
+import core.MoveGen;
 import core.Position;
 import core.UciMove;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Basic chess engine using alpha-beta search with quiescence.
+ * Basic chess engine using iterative-deepening alpha-beta search with
+ * aspiration windows and quiescence. With Threads > 1 it runs Lazy SMP:
+ * helper threads search the same root independently and share only the
+ * transposition table, and the main thread's result is reported.
  */
 public final class BasicEngine implements Engine {
     private static final int DEFAULT_DEPTH = 3;
+    private static final int MAX_DEPTH = 64;
     private static final int DEFAULT_Q_DEPTH = 8;
 
+    // Aspiration window half-width in centipawns, from this depth on
+    private static final int ASPIRATION_DELTA = 25;
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+
+    // Root move progress starts once a search has run this long, then repeats at most this often
+    private static final long CURRMOVE_DELAY_MS = 1000;
+
+    public static final int DEFAULT_THREADS = 1;
+    public static final int MAX_THREADS = 256;
+
+    private final TranspositionTable tt = new TranspositionTable(TranspositionTable.DEFAULT_MB);
+    private final AtomicBoolean stopFlag = new AtomicBoolean();
+    private int threads = DEFAULT_THREADS;
+    private SearchConfig config = SearchConfig.DEFAULT;
+
+    // State of the running search that ponderHit() needs from the UCI thread
+    private volatile boolean pondering;
+    private volatile long clockStart;
+    private volatile TimeManager time;
+    private volatile Search activeSearch;
+
     @Override
-    public AnalysisResult analyze(Position pos, SearchLimits limits) {
-        int depth = (limits.depth() > 0) ? limits.depth() : DEFAULT_DEPTH;
+    public AnalysisResult analyze(Position pos, SearchLimits limits, SearchListener listener) {
+        long start = System.nanoTime();
+        int maxDepth;
+        if (limits.depth() > 0)
+            maxDepth = Math.min(limits.depth(), MAX_DEPTH);
+        else if (limits.isTimed(pos.isWhiteToMove()) || limits.infinite())
+            maxDepth = MAX_DEPTH;
+        else
+            maxDepth = DEFAULT_DEPTH;
+
+        stopFlag.set(false);
+        tt.newSearch();
+        Search search = new Search(tt, stopFlag, config);
+        search.setListener(new SearchListener() {
+            private long nextReport = start + CURRMOVE_DELAY_MS * 1_000_000L;
+
+            @Override
+            public void currentMove(int depth, Move move, int number) {
+                long now = System.nanoTime();
+                if (now - nextReport >= 0) {
+                    nextReport = now + CURRMOVE_DELAY_MS * 1_000_000L;
+                    listener.currentMove(depth, move, number);
+                }
+            }
+        });
+        synchronized (this) {
+            // While pondering the clock does not run; ponderHit() starts it
+            pondering = limits.ponder();
+            clockStart = start;
+            time = TimeManager.forLimits(limits, pos.isWhiteToMove());
+            activeSearch = search;
+            if (!pondering && time.hardMs() >= 0)
+                search.setDeadline(start + time.hardMs() * 1_000_000L);
+        }
+
+        // Lazy SMP helpers stop when the main thread finishes its iterations
+        AtomicBoolean helperStop = new AtomicBoolean();
+        Thread[] helperThreads = new Thread[threads - 1];
+        Search[] helpers = new Search[threads - 1];
+        long[] helperNodes = new long[threads - 1];
+        for (int i = 0; i < helperThreads.length; i++) {
+            int id = i + 1;
+            Search helper = new Search(tt, helperStop, config);
+            helpers[i] = helper;
+            helper.setHelperId(id);
+            Position helperPos = pos.copy();
+            int helperMaxDepth = maxDepth;
+            helperThreads[i] = new Thread(() -> helperNodes[id - 1] = runHelper(helper, helperPos, helperMaxDepth, id),
+                    "search-helper-" + id);
+            helperThreads[i].start();
+        }
+
+        // Iterative deepening: each completed iteration seeds the next with its PV
+        SearchResult result = null;
+        int completedDepth = 0;
+        long nodes = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            SearchResult iteration = searchIteration(search, pos, depth, result);
+            nodes += iteration.nodes();
+            if (search.wasStopped()) {
+                // A cut-short iteration is only worth keeping if nothing
+                // finished; it carries the best root move it got through
+                if (result == null && iteration.bestMove() != null)
+                    result = iteration;
+                break;
+            }
+            result = iteration;
+            completedDepth = depth;
+            listener.iteration(info(pos, search, helpers, depth, iteration, start));
 
-        Search search = new Search();
-        SearchResult result = search.search(pos, depth, DEFAULT_Q_DEPTH);
+            long elapsedMs = (System.nanoTime() - clockStart) / 1_000_000L;
+            if (!pondering && !time.shouldStartIteration(elapsedMs))
+                break;
+        }
+
+        helperStop.set(true);
+        List<Long> threadNodes = new ArrayList<>();
+        threadNodes.add(nodes);
+        for (int i = 0; i < helperThreads.length; i++) {
+            try {
+                helperThreads[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            threadNodes.add(helperNodes[i]);
+        }
+        long searchMs = (System.nanoTime() - start) / 1_000_000L;
+
+        // "go infinite" and unanswered "go ponder" must not report before stop/ponderhit
+        synchronized (this) {
+            while (!stopFlag.get() && (limits.infinite() || pondering)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            activeSearch = null;
+            pondering = false; // a stopped ponder search must not take a later ponderhit
+        }
 
         // Convert to UCI format
-        String bestMoveUci = "0000";
-        if (result.bestMove() != null) {
-            bestMoveUci = UciMove.format(result.bestMove());
+        // Stopped before any root move was searched: play the first legal one
+        if (result == null) {
+            List<Move> legal = MoveGen.generateLegal(pos);
+            if (!legal.isEmpty())
+                result = new SearchResult(legal.get(0), 0, List.of(legal.get(0)), 0);
         }
 
+        String bestMoveUci = "0000";
         List<String> pvUci = new ArrayList<>();
-        for (Move move : result.pv()) {
-            pvUci.add(UciMove.format(move));
+        int evalCp = 0;
+        if (result != null) {
+            if (result.bestMove() != null)
+                bestMoveUci = UciMove.format(result.bestMove());
+            for (Move move : result.pv()) {
+                pvUci.add(UciMove.format(move));
+            }
+            evalCp = result.evalCp();
+        }
+
+        long totalNodes = 0;
+        for (long n : threadNodes)
+            totalNodes += n;
+        return new AnalysisResult(bestMoveUci, evalCp, pvUci, completedDepth, totalNodes, searchMs, threadNodes);
+    }
+
+    /** Progress after a completed iteration, with nodes summed over all threads so far. */
+    private SearchInfo info(Position pos, Search search, Search[] helpers, int depth, SearchResult iteration,
+            long start) {
+        long nodes = search.totalNodes();
+        for (Search helper : helpers)
+            nodes += helper.totalNodes();
+        List<String> pv = new ArrayList<>();
+        for (Move move : iteration.pv())
+            pv.add(UciMove.format(move));
+        int score = pos.isWhiteToMove() ? iteration.evalCp() : -iteration.evalCp();
+        long timeMs = (System.nanoTime() - start) / 1_000_000L;
+        return new SearchInfo(depth, search.selDepth(), score, nodes, timeMs, tt.hashfull(), pv);
+    }
+
+    /**
+     * Helper thread's iterative deepening. Odd helpers start one ply deeper
+     * so the threads spread over depths instead of racing on the same one.
+     *
+     * @return nodes searched
+     */
+    private static long runHelper(Search search, Position pos, int maxDepth, int id) {
+        long nodes = 0;
+        SearchResult previous = null;
+        for (int depth = 1 + (id & 1); depth <= maxDepth; depth++) {
+            SearchResult iteration = searchIteration(search, pos, depth, previous);
+            nodes += iteration.nodes();
+            if (search.wasStopped())
+                break;
+            previous = iteration;
+        }
+        return nodes;
+    }
+
+    /**
+     * Search one depth, seeded with the previous iteration's PV. From
+     * ASPIRATION_MIN_DEPTH on, the window starts narrow around the previous
+     * score and is widened on whichever side the result falls outside, until
+     * the score lands inside it. The search's seldepth covers all attempts.
+     *
+     * @return the final search, with nodes summed over all attempts
+     */
+    private static SearchResult searchIteration(Search search, Position pos, int depth, SearchResult previous) {
+        search.resetSelDepth();
+        List<Move> pv = previous == null ? new ArrayList<>() : previous.pv();
+        if (previous == null || depth < ASPIRATION_MIN_DEPTH)
+            return search.search(pos, depth, DEFAULT_Q_DEPTH, pv);
+
+        int delta = ASPIRATION_DELTA;
+        int alpha = Math.max(previous.evalCp() - delta, -Search.INFINITY);
+        int beta = Math.min(previous.evalCp() + delta, Search.INFINITY);
+        long nodes = 0;
+        while (true) {
+            SearchResult result = search.search(pos, depth, DEFAULT_Q_DEPTH, pv, alpha, beta);
+            nodes += result.nodes();
+            int score = result.evalCp();
+            boolean inside = (score > alpha || alpha == -Search.INFINITY)
+                    && (score < beta || beta == Search.INFINITY);
+            if (inside || search.wasStopped())
+                return new SearchResult(result.bestMove(), score, result.pv(), nodes);
+
+            delta *= 2;
+            if (score <= alpha)
+                alpha = Math.max(score - delta, -Search.INFINITY);
+            else
+                beta = Math.min(score + delta, Search.INFINITY);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopFlag.set(true);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized boolean ponderHit() {
+        if (!pondering)
+            return false;
+        long now = System.nanoTime();
+        clockStart = now;
+        pondering = false;
+        Search search = activeSearch;
+        if (search != null && time.hardMs() >= 0)
+            search.setDeadline(now + time.hardMs() * 1_000_000L);
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public void setOption(String name, String value) {
+        try {
+            if (name.equalsIgnoreCase("Hash")) {
+                tt.resize(Integer.parseInt(value.trim()));
+            } else if (name.equalsIgnoreCase("Threads")) {
+                threads = Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value.trim())));
+            } else if (value.trim().equalsIgnoreCase("true") || value.trim().equalsIgnoreCase("false")) {
+                config = config.with(name, Boolean.parseBoolean(value.trim()));
+            }
+        } catch (NumberFormatException ignored) {
         }
+    }
 
-        return new AnalysisResult(bestMoveUci, result.evalCp(), pvUci);
+    @Override
+    public void newGame() {
+        tt.clear();
     }
 }
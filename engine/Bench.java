@@ -0,0 +1,70 @@
+package engine;
+
+import core.Position;
+
+import java.io.PrintStream;
+
+/**
+ * Fixed-depth search over a fixed position suite. Reports total nodes,
+ * time and nodes per second, and a signature over the per-position node
+ * counts: with one thread the search is deterministic, so a changed
+ * signature means a change in search behaviour, not just in speed.
+ */
+public final class Bench {
+    private Bench() {
+    }
+
+    public static final int DEFAULT_DEPTH = 8;
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1B1PPP/R2QKB1R w KQ - 0 8",
+            "2rq1rk1/pb1nbppp/1p2pn2/2pp4/2PP4/1PN1PN2/PB2BPPP/2RQ1RK1 w - - 0 12",
+            "r2q1rk1/1b1nbppp/p2ppn2/1p6/3NP3/1BN1BP2/PPPQ2PP/2KR3R w - - 0 11",
+            "6k1/5pp1/4p2p/8/3P4/4P1P1/5P1P/6K1 w - - 0 40",
+            "8/8/4k3/3p4/3P4/4K3/8/8 w - - 0 50",
+            "4r1k1/1p3ppp/p1p5/3n4/3P4/P1N2P2/1P4PP/4R1K1 b - - 0 25",
+            "8/5pk1/6p1/R7/5P2/6PK/r7/8 b - - 3 45"
+    };
+
+    /** Totals over the suite. */
+    public record Result(long nodes, long timeMs, long signature) {
+        public long nps() {
+            return nodes * 1000 / Math.max(1, timeMs);
+        }
+    }
+
+    /**
+     * Search every suite position to depth with engine, starting each from a
+     * new game, and print one line per position and a summary to out.
+     */
+    public static Result run(Engine engine, int depth, PrintStream out) {
+        long nodes = 0;
+        long timeMs = 0;
+        long signature = 0xCBF29CE484222325L; // FNV-1a over the node counts
+        for (int i = 0; i < FENS.length; i++) {
+            engine.newGame();
+            AnalysisResult r = engine.analyze(Position.fromFen(FENS[i]), new SearchLimits(depth));
+            nodes += r.nodes();
+            timeMs += r.timeMs();
+            signature = (signature ^ r.nodes()) * 0x100000001B3L;
+            out.println("Position " + (i + 1) + "/" + FENS.length + ": bestmove " + r.bestMoveUci()
+                    + " nodes " + r.nodes() + " time " + r.timeMs());
+        }
+
+        Result result = new Result(nodes, timeMs, signature);
+        out.println();
+        out.println("Depth          : " + depth);
+        out.println("Total time (ms): " + result.timeMs());
+        out.println("Nodes searched : " + result.nodes());
+        out.println("Nodes/second   : " + result.nps());
+        out.println("Signature      : " + Long.toHexString(result.signature()));
+        return result;
+    }
+}
@@ -3,5 +3,30 @@ package engine;
 import core.Position;
 
 public interface Engine {
-    AnalysisResult analyze(Position pos, SearchLimits limits);
+    /** Search pos, reporting progress to listener as it goes. */
+    AnalysisResult analyze(Position pos, SearchLimits limits, SearchListener listener);
+
+    default AnalysisResult analyze(Position pos, SearchLimits limits) {
+        return analyze(pos, limits, SearchListener.NONE);
+    }
+
+    /** Ask a running analyze() to return as soon as possible. Safe from any thread. */
+    void stop();
+
+    /**
+     * The opponent played the pondered move: switch a "go ponder" search to
+     * its clock.
+     *
+     * @return false if no search is pondering yet, so the caller may retry
+     */
+    boolean ponderHit();
+
+    /** Apply a UCI "setoption"; unknown names are ignored. */
+    void setOption(String name, String value);
+
+    /** Number of search threads, as last set by the "Threads" option. */
+    int threads();
+
+    /** Forget state carried between searches, e.g. on "ucinewgame". */
+    void newGame();
 }
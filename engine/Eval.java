@@ -1,5 +1,6 @@
 package engine;
 
+import core.Bitboards;
 import core.Position;
 import core.PST;
 
@@ -13,74 +14,131 @@ public final class Eval {
     private Eval() {
     }
 
-    private static final int PAWN_VALUE = 100;
-    private static final int KNIGHT_VALUE = 300;
-    private static final int BISHOP_VALUE = 300;
-    private static final int ROOK_VALUE = 500;
-    private static final int QUEEN_VALUE = 900;
-    private static final int KING_VALUE = 0;
+    private static final int PAWN_VALUE = PST.PIECE_VALUES[0];
+    private static final int KNIGHT_VALUE = PST.PIECE_VALUES[1];
+    private static final int BISHOP_VALUE = PST.PIECE_VALUES[2];
+    private static final int ROOK_VALUE = PST.PIECE_VALUES[3];
+    private static final int QUEEN_VALUE = PST.PIECE_VALUES[4];
+    private static final int KING_VALUE = PST.PIECE_VALUES[5];
+
+    // Pawn structure terms, middlegame and endgame, per pawn
+    private static final int DOUBLED_MG = -10, DOUBLED_EG = -20; // per extra pawn on a file
+    private static final int ISOLATED_MG = -10, ISOLATED_EG = -15;
+    private static final int BACKWARD_MG = -8, BACKWARD_EG = -12;
+    private static final int[] PASSED_MG = { 0, 5, 10, 15, 25, 40, 60, 0 }; // by rank from own side
+    private static final int[] PASSED_EG = { 0, 10, 15, 25, 45, 70, 110, 0 };
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // [side][sq]: squares an enemy pawn must not occupy for a pawn on sq to be passed
+    private static final long[][] PASSED_SPAN = new long[2][64];
+    // [side][sq]: adjacent-file squares level with or behind sq, where a friendly pawn could support it
+    private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+    static {
+        for (int f = 0; f < 8; f++)
+            FILES[f] = Bitboards.FILE_A << f;
+        for (int f = 0; f < 8; f++)
+            ADJACENT_FILES[f] = (f > 0 ? FILES[f - 1] : 0) | (f < 7 ? FILES[f + 1] : 0);
+        for (int sq = 0; sq < 64; sq++) {
+            int r = sq / 8;
+            long above = r == 7 ? 0 : -1L << (8 * (r + 1));
+            long below = r == 0 ? 0 : -1L >>> (8 * (8 - r));
+            long span = FILES[sq % 8] | ADJACENT_FILES[sq % 8];
+            PASSED_SPAN[0][sq] = span & above;
+            PASSED_SPAN[1][sq] = span & below;
+            SUPPORT_SPAN[0][sq] = ADJACENT_FILES[sq % 8] & ~above;
+            SUPPORT_SPAN[1][sq] = ADJACENT_FILES[sq % 8] & ~below;
+        }
+    }
 
     /**
-     * Evaluate position from White's perspective.
+     * Evaluate position from White's perspective, analysing pawn structure
+     * from scratch.
      * 
      * @param pos Position to evaluate
      * @return Score in centipawns (positive = white better, negative = black
      *         better)
      */
     public static int evaluate(Position pos) {
-        int score = 0;
-        for (int sq = 0; sq < 64; sq++) {
-            char piece = pos.pieceAt(sq);
-            if (piece == '.')
-                continue;
-
-            int value = getPieceValue(piece);
-            boolean isWhite = Character.isUpperCase(piece);
-            int pstScore = PST.value(sq, isWhite, piece, isEndgame(pos));
-
-            if (isWhite) {
-                // White piece
-                score += value + pstScore;
-            } else {
-                // Black piece
-                score -= value + pstScore;
-            }
+        return blend(pos, evaluatePawns(pos));
+    }
+
+    /**
+     * Evaluate position from White's perspective, with pawn structure
+     * looked up in, or added to, pawns.
+     *
+     * Material and PST sums for the middlegame and endgame tables are kept
+     * up to date by Position as moves are made, so on a pawn table hit the
+     * cost is constant.
+     */
+    static int evaluate(Position pos, PawnTable pawns) {
+        long key = pos.pawnHash();
+        long pawnScore = pawns.probe(key);
+        if (pawnScore == PawnTable.MISS) {
+            pawnScore = evaluatePawns(pos);
+            pawns.store(key, pawnScore);
         }
+        return blend(pos, pawnScore);
+    }
 
-        return score;
+    /** Taper middlegame and endgame totals by the remaining non-pawn material. */
+    private static int blend(Position pos, long pawnScore) {
+        int phase = Math.min(pos.phase(), PST.PHASE_MAX);
+        int mg = pos.mgScore() + (int) (pawnScore >> 32);
+        int eg = pos.egScore() + (int) pawnScore;
+        return (mg * phase + eg * (PST.PHASE_MAX - phase)) / PST.PHASE_MAX;
     }
 
     /**
-     * Determine if position is in endgame phase.
-     * Simple heuristic: no queens, or total material < 1300 per side.
+     * Passed, doubled, isolated and backward pawn terms, white minus black,
+     * packed with the middlegame score in the high 32 bits and the endgame
+     * score in the low 32 bits.
      */
-    private static boolean isEndgame(Position pos) {
-        int whiteQueens = 0;
-        int blackQueens = 0;
-        int whiteMaterial = 0;
-        int blackMaterial = 0;
+    static long evaluatePawns(Position pos) {
+        long white = pos.bitboard(Position.WHITE_PAWN);
+        long black = pos.bitboard(Position.BLACK_PAWN);
+        int mg = 0;
+        int eg = 0;
 
-        for (int sq = 0; sq < 64; sq++) {
-            char piece = pos.pieceAt(sq);
-            if (piece == '.')
-                continue;
-
-            int value = getPieceValue(piece);
-
-            if (Character.isUpperCase(piece)) {
-                whiteMaterial += value;
-                if (piece == 'Q')
-                    whiteQueens++;
-            } else {
-                blackMaterial += value;
-                if (piece == 'q')
-                    blackQueens++;
+        for (int side = 0; side < 2; side++) {
+            long own = side == 0 ? white : black;
+            long enemy = side == 0 ? black : white;
+            int sign = side == 0 ? 1 : -1;
+
+            for (int f = 0; f < 8; f++) {
+                int onFile = Long.bitCount(own & FILES[f]);
+                if (onFile > 1) {
+                    mg += sign * DOUBLED_MG * (onFile - 1);
+                    eg += sign * DOUBLED_EG * (onFile - 1);
+                }
             }
-        }
 
-        // Endgame if no queens or low material
-        return (whiteQueens == 0 && blackQueens == 0) ||
-                (whiteMaterial < 1300 || blackMaterial < 1300);
+            for (long bb = own; bb != 0; bb &= bb - 1) {
+                int sq = Long.numberOfTrailingZeros(bb);
+                int f = sq % 8;
+                int rank = side == 0 ? sq / 8 : 7 - sq / 8;
+
+                if ((enemy & PASSED_SPAN[side][sq]) == 0) {
+                    mg += sign * PASSED_MG[rank];
+                    eg += sign * PASSED_EG[rank];
+                }
+
+                if ((own & ADJACENT_FILES[f]) == 0) {
+                    mg += sign * ISOLATED_MG;
+                    eg += sign * ISOLATED_EG;
+                } else if ((own & SUPPORT_SPAN[side][sq]) == 0) {
+                    // Every neighbour has advanced past it; backward if an
+                    // enemy pawn guards the square in front
+                    int stop = side == 0 ? sq + 8 : sq - 8;
+                    if ((Bitboards.PAWN_ATTACKS[side][stop] & enemy) != 0) {
+                        mg += sign * BACKWARD_MG;
+                        eg += sign * BACKWARD_EG;
+                    }
+                }
+            }
+        }
+        return (long) mg << 32 | (eg & 0xFFFFFFFFL);
     }
 
     /**
@@ -0,0 +1,314 @@
+package engine;
+
+import core.Attack;
+import core.MoveGen;
+import core.PST;
+import core.PackedMove;
+import core.Position;
+
+/**
+ * Staged move ordering for one ply of the search.
+ *
+ * Stages run in order: hash move, captures by MVV-LVA, two killers, the
+ * countermove, remaining quiets by history score, then captures that lose
+ * material by static exchange evaluation. Captures and quiets are only
+ * generated when their stage is reached, so a cutoff on the hash move or a
+ * good capture skips quiet generation entirely.
+ *
+ * Quiescence uses two other modes. Captures-only mode picks captures and
+ * queen promotions, dropping losing captures; evasion mode picks every
+ * reply to check, captures first.
+ *
+ * Moves are pseudo-legal in the main search mode, and the caller rejects
+ * those that leave the king in check after making them. The quiescence
+ * modes only return legal moves.
+ */
+final class MovePicker {
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_CAPTURES_INIT = 1;
+    private static final int STAGE_CAPTURES = 2;
+    private static final int STAGE_KILLER_1 = 3;
+    private static final int STAGE_KILLER_2 = 4;
+    private static final int STAGE_COUNTER = 5;
+    private static final int STAGE_QUIETS_INIT = 6;
+    private static final int STAGE_QUIETS = 7;
+    private static final int STAGE_BAD_CAPTURES = 8;
+    private static final int STAGE_EVASIONS = 9;
+    private static final int STAGE_DONE = 10;
+
+    // Quiet promotions are ordered ahead of any history score
+    private static final int PROMOTION_BONUS = 1 << 24;
+    // Capturing evasions go ahead of the quiet ones
+    private static final int CAPTURE_BONUS = 1 << 25;
+
+    private final int[] moves = new int[MoveGen.MAX_MOVES];
+    private final int[] scores = new int[MoveGen.MAX_MOVES];
+    private final int[] badCaptures = new int[MoveGen.MAX_MOVES];
+    private final int[] seeGain = new int[Attack.SEE_GAIN_SIZE]; // reused swap list for SEE
+    private int badCount;
+    private int badIndex;
+    private final int[][][] history;
+
+    private Position pos;
+    private int stage;
+    private int index;
+    private int count;
+    private boolean capturesOnly;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private int counter;
+    private int rotation;
+
+    MovePicker(int[][][] history) {
+        this.history = history;
+    }
+
+    /**
+     * Start picking for a main search node. Hash, killer and counter moves
+     * are 16-bit codes (0 for none) and are checked against pos before use.
+     *
+     * @param rotation Lazy SMP helpers rotate each run of equal-history quiets by this much
+     */
+    void init(Position pos, int hashMove, int killer1, int killer2, int counter, int rotation) {
+        this.pos = pos;
+        this.capturesOnly = false;
+        this.hashMove = MoveGen.pseudoLegal(pos, hashMove);
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        this.counter = counter;
+        this.rotation = rotation;
+        this.stage = STAGE_HASH;
+    }
+
+    /** Start picking legal captures and queen promotions only, for quiescence. */
+    void initCaptures(Position pos) {
+        this.pos = pos;
+        this.capturesOnly = true;
+        this.hashMove = PackedMove.NONE;
+        this.stage = STAGE_CAPTURES_INIT;
+    }
+
+    /** Start picking legal replies to check, for quiescence. */
+    void initEvasions(Position pos) {
+        this.pos = pos;
+        this.hashMove = PackedMove.NONE;
+        count = MoveGen.generateEvasions(pos, moves, 0);
+        int side = pos.isWhiteToMove() ? 0 : 1;
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            scores[i] = PackedMove.isCapture(m)
+                    ? CAPTURE_BONUS + mvvLva(m)
+                    : history[side][PackedMove.from(m)][PackedMove.to(m)];
+        }
+        index = 0;
+        this.stage = STAGE_EVASIONS;
+    }
+
+    /** Next pseudo-legal move, or PackedMove.NONE when exhausted. */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case STAGE_HASH -> {
+                    stage = STAGE_CAPTURES_INIT;
+                    if (hashMove != PackedMove.NONE)
+                        return hashMove;
+                }
+                case STAGE_CAPTURES_INIT -> {
+                    badCount = 0;
+                    badIndex = 0;
+                    count = capturesOnly ? noisy() : MoveGen.generateCaptures(pos, moves, 0);
+                    for (int i = 0; i < count; i++)
+                        scores[i] = mvvLva(moves[i]);
+                    index = 0;
+                    stage = STAGE_CAPTURES;
+                }
+                case STAGE_CAPTURES -> {
+                    int move = pickBest();
+                    if (move != PackedMove.NONE) {
+                        if (PackedMove.code(move) == PackedMove.code(hashMove))
+                            continue;
+                        if (!winsOrEqual(move)) {
+                            if (!capturesOnly)
+                                badCaptures[badCount++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = capturesOnly ? STAGE_DONE : STAGE_KILLER_1;
+                }
+                case STAGE_KILLER_1 -> {
+                    stage = STAGE_KILLER_2;
+                    int move = quietSpecial(killer1);
+                    if (move != PackedMove.NONE)
+                        return move;
+                }
+                case STAGE_KILLER_2 -> {
+                    stage = STAGE_COUNTER;
+                    int move = killer2 != killer1 ? quietSpecial(killer2) : PackedMove.NONE;
+                    if (move != PackedMove.NONE)
+                        return move;
+                }
+                case STAGE_COUNTER -> {
+                    stage = STAGE_QUIETS_INIT;
+                    int move = counter != killer1 && counter != killer2 ? quietSpecial(counter) : PackedMove.NONE;
+                    if (move != PackedMove.NONE)
+                        return move;
+                }
+                case STAGE_QUIETS_INIT -> {
+                    count = MoveGen.generateQuiets(pos, moves, 0);
+                    int side = pos.isWhiteToMove() ? 0 : 1;
+                    for (int i = 0; i < count; i++) {
+                        int m = moves[i];
+                        scores[i] = history[side][PackedMove.from(m)][PackedMove.to(m)]
+                                + (PackedMove.isPromotion(m) ? PROMOTION_BONUS : 0);
+                    }
+                    sortQuiets();
+                    index = 0;
+                    stage = STAGE_QUIETS;
+                }
+                case STAGE_QUIETS -> {
+                    if (index < count) {
+                        int move = moves[index++];
+                        if (!alreadyTried(move))
+                            return move;
+                        continue;
+                    }
+                    stage = STAGE_BAD_CAPTURES;
+                }
+                case STAGE_BAD_CAPTURES -> {
+                    if (badIndex < badCount)
+                        return badCaptures[badIndex++];
+                    stage = STAGE_DONE;
+                }
+                case STAGE_EVASIONS -> {
+                    int move = pickBest();
+                    if (move != PackedMove.NONE)
+                        return move;
+                    stage = STAGE_DONE;
+                }
+                default -> {
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    /** Legal captures and promotions, leaving under-promotions to the main search. */
+    private int noisy() {
+        int n = MoveGen.generateNoisy(pos, moves, 0);
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            int m = moves[i];
+            if (!PackedMove.isPromotion(m) || PackedMove.promotion(m) == PackedMove.PROMO_QUEEN)
+                moves[kept++] = m;
+        }
+        return kept;
+    }
+
+    /** Killer or counter code as a full move, if it is a pseudo-legal quiet not already tried. */
+    private int quietSpecial(int code) {
+        if (code == PackedMove.NONE || code == PackedMove.code(hashMove))
+            return PackedMove.NONE;
+        int move = MoveGen.pseudoLegal(pos, code);
+        if (move == PackedMove.NONE || PackedMove.isCapture(move))
+            return PackedMove.NONE;
+        return move;
+    }
+
+    private boolean alreadyTried(int move) {
+        int code = PackedMove.code(move);
+        return code == PackedMove.code(hashMove)
+                || (code == killer1 && quietSpecial(killer1) != PackedMove.NONE)
+                || (code == killer2 && quietSpecial(killer2) != PackedMove.NONE)
+                || (code == counter && quietSpecial(counter) != PackedMove.NONE);
+    }
+
+    /** Selection step: captures are few and often cut off early, so no full sort. */
+    private int pickBest() {
+        if (index >= count)
+            return PackedMove.NONE;
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best])
+                best = i;
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        index++;
+        return move;
+    }
+
+    /**
+     * Insertion sort by descending score, stable; then apply the helper
+     * rotation within each run of equal scores, so helpers reorder only
+     * moves history cannot tell apart and the list stays sorted.
+     */
+    private void sortQuiets() {
+        for (int i = 1; i < count; i++) {
+            int m = moves[i];
+            int s = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < s) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = m;
+            scores[j + 1] = s;
+        }
+        if (rotation == 0)
+            return;
+        int from = 0;
+        while (from < count) {
+            int to = from + 1;
+            while (to < count && scores[to] == scores[from])
+                to++;
+            if (to - from > 1)
+                rotate(moves, from, to, rotation % (to - from));
+            from = to;
+        }
+    }
+
+    /** Rotate moves[from, to) right by k places (by three reversals, no allocation). */
+    private static void rotate(int[] moves, int from, int to, int k) {
+        if (k == 0)
+            return;
+        reverse(moves, from, to - 1);
+        reverse(moves, from, from + k - 1);
+        reverse(moves, from + k, to - 1);
+    }
+
+    private static void reverse(int[] a, int i, int j) {
+        for (; i < j; i++, j--) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * True unless the capture loses material by SEE. Taking a piece worth at
+     * least the capturer, or promoting, cannot lose, so SEE is skipped there.
+     */
+    private boolean winsOrEqual(int move) {
+        if (PackedMove.isPromotion(move) || PackedMove.isEnPassant(move))
+            return true;
+        int victim = PST.PIECE_VALUES[pos.pieceIndexAt(PackedMove.to(move)) % 6];
+        int attacker = PST.PIECE_VALUES[pos.pieceIndexAt(PackedMove.from(move)) % 6];
+        return victim >= attacker || Attack.see(pos, move, seeGain) >= 0;
+    }
+
+    /**
+     * Most valuable victim first, least valuable attacker breaking ties. A
+     * promotion counts the promoted piece as part of the gain.
+     */
+    private int mvvLva(int move) {
+        int victim = PackedMove.isCapture(move) ? Search.capturedValue(pos, move) : 0;
+        if (PackedMove.isPromotion(move))
+            victim += PST.PIECE_VALUES[PackedMove.promotion(move)];
+        int attacker = PST.PIECE_VALUES[pos.pieceIndexAt(PackedMove.from(move)) % 6];
+        return victim * 16 - attacker / 100;
+    }
+}
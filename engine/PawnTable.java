@@ -0,0 +1,39 @@
+package engine;
+
+/**
+ * Cache of pawn-structure scores keyed by Position.pawnHash(). Pawns move
+ * rarely during search, so most probes hit. Each search thread owns its own
+ * table, so no synchronization is needed.
+ *
+ * Scores are stored as Eval packs them: middlegame in the high 32 bits,
+ * endgame in the low 32 bits.
+ */
+final class PawnTable {
+    static final int DEFAULT_ENTRIES = 1 << 14;
+
+    /** Returned by probe on a miss; no packed score has this value. */
+    static final long MISS = Long.MIN_VALUE;
+
+    // Empty slots hold key 0 with score 0, which is correct for the pawnless key 0
+    private final long[] keys;
+    private final long[] scores;
+    private final int mask;
+
+    PawnTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[size];
+        scores = new long[size];
+        mask = size - 1;
+    }
+
+    long probe(long key) {
+        int i = (int) key & mask;
+        return keys[i] == key ? scores[i] : MISS;
+    }
+
+    void store(long key, long score) {
+        int i = (int) key & mask;
+        keys[i] = key;
+        scores[i] = score;
+    }
+}
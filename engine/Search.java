@@ -2,226 +2,541 @@ package engine;
 
 import core.Attack;
 import core.Move;
-import core.MoveGen;
+import core.PST;
+import core.PackedMove;
 import core.Position;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Alpha-beta minimax search with quiescence.
- * Evaluation is always from White's perspective.
+ * Negamax alpha-beta search with principal variation search and quiescence.
+ * Scores inside the search are from the side to move's perspective; results
+ * are reported from White's.
  */
 public final class Search {
-    private static final int MATE_SCORE = 100000;
-    private static final int ALPHA_INITIAL = -200000;
-    private static final int BETA_INITIAL = 200000;
+    // Mate scores count down with distance from the root: mated at ply p scores
+    // -(MATE_SCORE - p), so anything beyond MATE_BOUND in size is a forced mate
+    public static final int MATE_SCORE = 100000;
+    public static final int INFINITY = 200000;
+
+    // Nodes between polls of the stop flag and the clock
+    private static final int CHECK_INTERVAL = 2048;
+    private static final int MAX_PLY = 128;
+    public static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+
+    // Selectivity parameters; depths in plies, margins in centipawns
+    private static final int RFP_MAX_DEPTH = 3;
+    private static final int RFP_MARGIN = 120; // per ply of depth
+    private static final int FUTILITY_MAX_DEPTH = 2;
+    private static final int[] FUTILITY_MARGIN = { 0, 150, 300 };
+    private static final int NULL_MIN_DEPTH = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVES = 3; // moves searched at full depth first
+    private static final int DELTA_MARGIN = 200; // positional slack allowed on top of a capture in quiescence
+    private static final int[][] LMR_TABLE = new int[64][64]; // [depth][move number] -> reduction
+
+    static {
+        for (int d = 1; d < 64; d++) {
+            for (int m = 1; m < 64; m++)
+                LMR_TABLE[d][m] = (int) (0.75 + Math.log(d) * Math.log(m) / 2.25);
+        }
+    }
 
+    private final TranspositionTable tt;
+    private final AtomicBoolean stopFlag;
+    private final SearchConfig config;
+    private volatile long deadlineNanos; // 0 = none; may be set from another thread on ponderhit
+    private boolean stopped;
     private long nodeCount;
-
-    public Search() {
+    private int pollCountdown = CHECK_INTERVAL; // runs on across searches, unlike nodeCount
+    private volatile long totalNodes; // over all searches, published as each one ends
+    private int selDepth;
+    private int rootDepth;
+    private SearchListener listener = SearchListener.NONE;
+    private int helperId; // 0 = main thread; Lazy SMP helpers vary move order by id
+
+    // Quiet-move heuristics, filled on beta cutoffs and kept across iterations:
+    // two killers per ply, history by side/from/to, and the reply that refuted
+    // the opponent's last move, indexed by that move's piece and target square
+    private static final int HISTORY_MAX = 1 << 20;
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][][] history = new int[2][64][64];
+    private final int[][] counterMoves = new int[12][64];
+    private final int[] playedMoves = new int[MAX_PLY];
+
+    // Triangular PV table: row ply holds the best line found from that ply,
+    // pvLength[ply] moves long; a new best move is prepended to the child's row
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    // Per-thread cache of pawn-structure scores
+    private final PawnTable pawnTable = new PawnTable(PawnTable.DEFAULT_ENTRIES);
+
+    // One move picker per ply, reused across nodes so ordering does not allocate
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+    // Previous iteration's PV (16-bit move codes), tried first while the current path still follows it
+    private int[] pvHint = new int[0];
+    private int pvPly;
+
+    public Search(TranspositionTable tt, AtomicBoolean stopFlag, SearchConfig config) {
+        this.tt = tt;
+        this.stopFlag = stopFlag;
+        this.config = config;
         this.nodeCount = 0;
+        for (int i = 0; i < MAX_PLY; i++)
+            pickers[i] = new MovePicker(history);
+    }
+
+    /** Abort any search still running at this System.nanoTime() value; 0 clears it. */
+    public void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Mark this as a Lazy SMP helper so its move order differs from the main thread's. */
+    public void setHelperId(int helperId) {
+        this.helperId = helperId;
+    }
+
+    /** Receive root move progress; only the main thread should have one. */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /** Nodes over every search so far, as of the end of the last one. Safe from any thread. */
+    public long totalNodes() {
+        return totalNodes;
+    }
+
+    /** Deepest ply reached since the last resetSelDepth(), quiescence included. */
+    public int selDepth() {
+        return selDepth;
+    }
+
+    /** Start a new seldepth count; searches only ever raise it. */
+    public void resetSelDepth() {
+        selDepth = 0;
+    }
+
+    /** True if the last search was cut short; its result is then incomplete. */
+    public boolean wasStopped() {
+        return stopped;
     }
 
     /**
-     * Search for the best move using alpha-beta minimax.
+     * Search for the best move with a full window.
      * 
      * @param pos    Starting position
      * @param depth  Search depth in plies
      * @param qDepth Maximum quiescence search depth
+     * @param pvHint PV from a shallower search, used for move ordering
      * @return Search result with best move, eval, and PV
      */
-    public SearchResult search(Position pos, int depth, int qDepth) {
-        nodeCount = 0;
-        AlphaBetaResult result = alphaBeta(pos, depth, qDepth, ALPHA_INITIAL, BETA_INITIAL);
-        return new SearchResult(result.bestMove, result.score, result.pv, nodeCount);
+    public SearchResult search(Position pos, int depth, int qDepth, List<Move> pvHint) {
+        return search(pos, depth, qDepth, pvHint, -INFINITY, INFINITY);
     }
 
-    private static class AlphaBetaResult {
-        int score;
-        Move bestMove;
-        List<Move> pv;
-
-        AlphaBetaResult(int score, Move bestMove, List<Move> pv) {
-            this.score = score;
-            this.bestMove = bestMove;
-            this.pv = pv;
-        }
+    /**
+     * Search for the best move inside an aspiration window. The window and
+     * the returned eval are from White's perspective; a result at or
+     * outside the window is only a bound and the caller should re-search
+     * with a wider one.
+     */
+    public SearchResult search(Position pos, int depth, int qDepth, List<Move> pvHint, int alpha, int beta) {
+        nodeCount = 0;
+        rootDepth = depth;
+        stopped = false;
+        pollStop();
+        this.pvHint = new int[pvHint.size()];
+        for (int i = 0; i < this.pvHint.length; i++)
+            this.pvHint[i] = PackedMove.fromMove(pvHint.get(i));
+        this.pvPly = 0;
+        // Search on a private copy; make/unmake mutates it in place
+        Position board = pos.copy();
+        boolean white = board.isWhiteToMove();
+        int score = white
+                ? alphaBeta(board, depth, qDepth, alpha, beta, 0)
+                : -alphaBeta(board, depth, qDepth, -beta, -alpha, 0);
+        totalNodes += nodeCount;
+        // A stopped search still returns the best root move it finished, if any
+        if (pvLength[0] == 0)
+            return new SearchResult(null, score, new ArrayList<>(), nodeCount);
+
+        List<Move> pv = new ArrayList<>(pvLength[0]);
+        for (int i = 0; i < pvLength[0]; i++)
+            pv.add(PackedMove.toMove(pvTable[0][i]));
+        return new SearchResult(pv.get(0), score, pv, nodeCount);
     }
 
     /**
-     * Alpha-beta minimax search.
-     * Always returns score from White's perspective.
+     * Negamax alpha-beta with principal variation search. Scores are from
+     * the side to move's perspective. A node is a PV node when its window is
+     * wider than a null window; only those may produce an exact score.
      */
-    private AlphaBetaResult alphaBeta(Position pos, int depth, int qDepth, int alpha, int beta) {
+    private int alphaBeta(Position pos, int depth, int qDepth, int alpha, int beta, int ply) {
         nodeCount++;
+        selDepth = Math.max(selDepth, ply);
+        pvLength[ply] = 0;
+        if (checkStop())
+            return 0;
 
-        // Terminal depth - call quiescence search
-        if (depth == 0) {
-            int qScore = quiescence(pos, qDepth, alpha, beta);
-            return new AlphaBetaResult(qScore, null, new ArrayList<>());
-        }
+        // Draw by repetition or the fifty-move rule. The root still has to
+        // choose a move, and a mate on the hundredth ply is scored as a draw.
+        if (ply > 0 && (pos.halfmoveClock() >= 100 || pos.isRepetition()))
+            return 0;
 
-        List<Move> legalMoves = MoveGen.generateLegal(pos);
+        boolean whiteToMove = pos.isWhiteToMove();
+        boolean inCheck = inCheck(pos, whiteToMove);
+        if (ply >= MAX_PLY - 1)
+            return inCheck ? 0 : staticEval(pos);
 
-        // Terminal node - checkmate or stalemate
-        if (legalMoves.isEmpty()) {
-            boolean whiteToMove = pos.isWhiteToMove();
-            int kingSq = pos.findKingSquare(whiteToMove);
-
-            if (kingSq >= 0 && Attack.isSquareAttacked(pos, kingSq, !whiteToMove)) {
-                // Checkmate
-                // If white is in check, black wins (negative score)
-                // If black is in check, white wins (positive score)
-                return new AlphaBetaResult(whiteToMove ? -MATE_SCORE : MATE_SCORE, null, new ArrayList<>());
-            } else {
-                // Stalemate
-                return new AlphaBetaResult(0, null, new ArrayList<>());
+        // Check extension: search evasions one ply deeper, so a check at the
+        // horizon is resolved here instead of stood pat in quiescence
+        if (inCheck && config.checkExtensions())
+            depth++;
+
+        // Terminal depth - call quiescence search
+        if (depth == 0)
+            return quiescence(pos, qDepth, alpha, beta, ply);
+
+        boolean pvNode = beta - alpha > 1;
+
+        // Transposition table: cut off on a usable bound at non-PV nodes, so
+        // PV nodes always search on and return a full line; otherwise just
+        // remember the stored best move.
+        long key = pos.hash();
+        long entry = tt.probe(key);
+        int ttMove = 0;
+        if (entry != 0L) {
+            ttMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = scoreFromTt(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
             }
         }
 
-        boolean whiteToMove = pos.isWhiteToMove();
-        Move bestMove = null;
-        List<Move> bestPV = new ArrayList<>();
-
-        if (whiteToMove) {
-            // White maximizes
-            int maxScore = ALPHA_INITIAL;
-
-            for (Move move : legalMoves) {
-                Position newPos = pos.apply(move);
-                AlphaBetaResult result = alphaBeta(newPos, depth - 1, qDepth, alpha, beta);
-
-                if (result.score > maxScore) {
-                    maxScore = result.score;
-                    bestMove = move;
-                    bestPV = new ArrayList<>();
-                    bestPV.add(move);
-                    bestPV.addAll(result.pv);
-                }
+        // Pruning below needs the static eval; PV nodes and check evasions are never pruned
+        boolean prunable = !pvNode && !inCheck;
+        int eval = prunable ? staticEval(pos) : 0;
+
+        // Reverse futility: near the leaves, a static eval this far above
+        // beta is not expected to be refuted
+        if (prunable && config.futility() && depth <= RFP_MAX_DEPTH && eval - RFP_MARGIN * depth >= beta)
+            return eval;
+
+        // Null move: if passing still fails high, a real move would too.
+        // Skipped without pieces, where zugzwang makes passing unsound, and
+        // straight after another null move.
+        if (prunable && config.nullMove() && depth >= NULL_MIN_DEPTH && eval >= beta
+                && hasNonPawnMaterial(pos, whiteToMove)
+                && ply > 0 && playedMoves[ply - 1] != PackedMove.NONE) {
+            int r = depth >= 6 ? 3 : 2;
+            playedMoves[ply] = PackedMove.NONE;
+            pos.makeNullMove();
+            int score = -alphaBeta(pos, Math.max(0, depth - 1 - r), qDepth, -beta, -beta + 1, ply + 1);
+            pos.unmakeNullMove();
+            if (stopped)
+                return 0;
+            if (score >= beta)
+                return beta;
+        }
 
-                alpha = Math.max(alpha, maxScore);
-                if (beta <= alpha) {
-                    break; // Beta cutoff
-                }
+        // Futility: at frontier nodes hopelessly below alpha, quiet moves
+        // that do not give check are skipped
+        boolean futile = prunable && config.futility() && depth <= FUTILITY_MAX_DEPTH
+                && eval + FUTILITY_MARGIN[depth] <= alpha;
+
+        int bestMove = PackedMove.NONE;
+        int alphaOrig = alpha;
+        int bestScore = -INFINITY;
+        int legalMoves = 0;
+
+        // The previous iteration's PV move goes ahead of the hash move
+        boolean onPv = pvPly == ply && ply < pvHint.length;
+        int hashMove = onPv ? pvHint[ply] : ttMove;
+        int counter = ply > 0 ? counterMove(pos, playedMoves[ply - 1]) : PackedMove.NONE;
+        // Helpers reorder quiet moves of equal history so threads sharing
+        // the table tend to explore different subtrees first
+        int rotation = helperId > 0 ? helperId + ply : 0;
+
+        MovePicker picker = pickers[ply];
+        picker.init(pos, hashMove, killers[ply][0], killers[ply][1], counter, rotation);
+        int move;
+        while ((move = picker.next()) != PackedMove.NONE) {
+            if (ply == 0 && legalMoves > 0 && pollStop())
+                return 0;
+            pos.makeMove(move);
+            if (leftInCheck(pos, whiteToMove)) {
+                pos.unmakeMove();
+                continue;
+            }
+            legalMoves++;
+            playedMoves[ply] = move;
+            if (ply == 0)
+                listener.currentMove(rootDepth, PackedMove.toMove(move), legalMoves);
+
+            boolean quiet = !PackedMove.isCapture(move) && !PackedMove.isPromotion(move);
+            boolean givesCheck = (futile || config.lateMoveReductions()) && legalMoves > 1
+                    && inCheck(pos, !whiteToMove);
+            if (futile && legalMoves > 1 && quiet && !givesCheck) {
+                pos.unmakeMove();
+                continue;
             }
 
-            return new AlphaBetaResult(maxScore, bestMove, bestPV);
-        } else {
-            // Black minimizes
-            int minScore = BETA_INITIAL;
-
-            for (Move move : legalMoves) {
-                Position newPos = pos.apply(move);
-                AlphaBetaResult result = alphaBeta(newPos, depth - 1, qDepth, alpha, beta);
-
-                if (result.score < minScore) {
-                    minScore = result.score;
-                    bestMove = move;
-                    bestPV = new ArrayList<>();
-                    bestPV.add(move);
-                    bestPV.addAll(result.pv);
+            boolean followsPv = onPv && PackedMove.code(move) == pvHint[ply];
+            if (followsPv)
+                pvPly = ply + 1;
+            int score;
+            if (legalMoves == 1) {
+                score = -alphaBeta(pos, depth - 1, qDepth, -beta, -alpha, ply + 1);
+            } else {
+                // Late quiet moves are searched shallower first, and again at
+                // full depth only if they beat alpha
+                int reduction = 0;
+                if (config.lateMoveReductions() && depth >= LMR_MIN_DEPTH && legalMoves > LMR_MIN_MOVES
+                        && quiet && !inCheck && !givesCheck) {
+                    reduction = LMR_TABLE[Math.min(depth, 63)][Math.min(legalMoves, 63)];
+                    if (pvNode)
+                        reduction--;
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
                 }
 
-                beta = Math.min(beta, minScore);
-                if (beta <= alpha) {
-                    break; // Alpha cutoff
-                }
+                // Later moves only need to prove they are no better than the
+                // best so far; re-search with the full window if one is
+                score = -alphaBeta(pos, depth - 1 - reduction, qDepth, -alpha - 1, -alpha, ply + 1);
+                if (reduction > 0 && score > alpha && !stopped)
+                    score = -alphaBeta(pos, depth - 1, qDepth, -alpha - 1, -alpha, ply + 1);
+                if (pvNode && score > alpha && score < beta && !stopped)
+                    score = -alphaBeta(pos, depth - 1, qDepth, -beta, -alpha, ply + 1);
+            }
+            pos.unmakeMove();
+            if (followsPv)
+                pvPly = ply;
+            if (stopped)
+                return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                updatePv(ply, move);
             }
 
-            return new AlphaBetaResult(minScore, bestMove, bestPV);
+            alpha = Math.max(alpha, bestScore);
+            if (alpha >= beta) {
+                recordCutoff(pos, move, depth, ply);
+                break;
+            }
         }
+
+        // Terminal node - checkmate or stalemate
+        if (legalMoves == 0)
+            return inCheck ? -MATE_SCORE + ply : 0;
+
+        storeResult(key, bestMove, bestScore, depth, alphaOrig, beta, ply);
+        return bestScore;
     }
 
-    /**
-     * Quiescence search - searches only captures to avoid horizon effect.
-     * Always returns score from White's perspective.
-     */
-    private int quiescence(Position pos, int qDepth, int alpha, int beta) {
-        nodeCount++;
+    /** Make move followed by the child's line the best line from ply. */
+    private void updatePv(int ply, int move) {
+        int[] row = pvTable[ply];
+        row[0] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], 0, row, 1, childLength);
+        pvLength[ply] = childLength + 1;
+    }
+
+    /** Static eval from the side to move's perspective. */
+    private int staticEval(Position pos) {
+        int eval = Eval.evaluate(pos, pawnTable);
+        return pos.isWhiteToMove() ? eval : -eval;
+    }
 
-        int standPat = Eval.evaluate(pos);
+    private static boolean hasNonPawnMaterial(Position pos, boolean white) {
+        int side = white ? Position.WHITE_PAWN : Position.BLACK_PAWN;
+        return (pos.bitboard(side + Position.WHITE_KNIGHT) | pos.bitboard(side + Position.WHITE_BISHOP)
+                | pos.bitboard(side + Position.WHITE_ROOK) | pos.bitboard(side + Position.WHITE_QUEEN)) != 0;
+    }
 
-        if (qDepth == 0) {
-            return standPat;
-        }
+    /** True if white's king (black's if !white) is attacked. */
+    private static boolean inCheck(Position pos, boolean white) {
+        int kingSq = pos.findKingSquare(white);
+        return kingSq >= 0 && Attack.isSquareAttacked(pos, kingSq, !white);
+    }
 
-        boolean whiteToMove = pos.isWhiteToMove();
+    /** True if the side that just moved (white if movedWhite) left its king attacked. */
+    private static boolean leftInCheck(Position pos, boolean movedWhite) {
+        int kingSq = pos.findKingSquare(movedWhite);
+        return kingSq < 0 || Attack.isSquareAttacked(pos, kingSq, !movedWhite);
+    }
 
-        if (whiteToMove) {
-            // White maximizes
-            if (standPat >= beta) {
-                return beta;
-            }
-            alpha = Math.max(alpha, standPat);
+    /** Reply stored against the opponent's last move, looked up by its piece and target. */
+    private int counterMove(Position pos, int previous) {
+        if (previous == PackedMove.NONE)
+            return PackedMove.NONE; // after a null move
+        int piece = pos.pieceIndexAt(PackedMove.to(previous));
+        return piece == Position.NO_PIECE ? PackedMove.NONE : counterMoves[piece][PackedMove.to(previous)];
+    }
 
-            List<Move> captures = generateCaptures(pos);
-            for (Move capture : captures) {
-                Position newPos = pos.apply(capture);
-                int score = quiescence(newPos, qDepth - 1, alpha, beta);
+    /**
+     * Update the quiet-move heuristics after move caused a cutoff. Captures
+     * and promotions are already ordered by material, so they are skipped.
+     */
+    private void recordCutoff(Position pos, int move, int depth, int ply) {
+        if (PackedMove.isCapture(move) || PackedMove.isPromotion(move))
+            return;
+        int code = PackedMove.code(move);
+        if (killers[ply][0] != code) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = code;
+        }
+        if (ply > 0 && playedMoves[ply - 1] != PackedMove.NONE) {
+            int previous = playedMoves[ply - 1];
+            int piece = pos.pieceIndexAt(PackedMove.to(previous));
+            if (piece != Position.NO_PIECE)
+                counterMoves[piece][PackedMove.to(previous)] = code;
+        }
 
-                if (score >= beta) {
-                    return beta;
-                }
-                alpha = Math.max(alpha, score);
-            }
+        int[] row = history[pos.isWhiteToMove() ? 0 : 1][PackedMove.from(move)];
+        row[PackedMove.to(move)] += depth * depth;
+        if (row[PackedMove.to(move)] > HISTORY_MAX)
+            ageHistory();
+    }
 
-            return alpha;
-        } else {
-            // Black minimizes
-            if (standPat <= alpha) {
-                return alpha;
+    /** Halve every history score, keeping their order while leaving headroom. */
+    private void ageHistory() {
+        for (int[][] side : history) {
+            for (int[] row : side) {
+                for (int i = 0; i < row.length; i++)
+                    row[i] >>= 1;
             }
-            beta = Math.min(beta, standPat);
+        }
+    }
 
-            List<Move> captures = generateCaptures(pos);
-            for (Move capture : captures) {
-                Position newPos = pos.apply(capture);
-                int score = quiescence(newPos, qDepth - 1, alpha, beta);
+    /**
+     * Poll the stop flag and deadline every CHECK_INTERVAL nodes. Once set,
+     * stays set for the rest of this search.
+     */
+    private boolean checkStop() {
+        if (!stopped && --pollCountdown <= 0)
+            pollStop();
+        return stopped;
+    }
 
-                if (score <= alpha) {
-                    return alpha;
-                }
-                beta = Math.min(beta, score);
-            }
+    /**
+     * Poll the stop flag and deadline now. Also done at the start of each
+     * search and before each root move after the first, so small searches
+     * that never reach CHECK_INTERVAL nodes still see a deadline.
+     */
+    private boolean pollStop() {
+        pollCountdown = CHECK_INTERVAL;
+        stopped = stopFlag.get() || (deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0);
+        return stopped;
+    }
 
-            return beta;
-        }
+    /**
+     * Store a node result. The bound follows from where the score fell
+     * relative to the original window.
+     */
+    private void storeResult(long key, int bestMove, int score, int depth, int alphaOrig, int betaOrig, int ply) {
+        int bound;
+        if (score <= alphaOrig)
+            bound = TranspositionTable.BOUND_UPPER;
+        else if (score >= betaOrig)
+            bound = TranspositionTable.BOUND_LOWER;
+        else
+            bound = TranspositionTable.BOUND_EXACT;
+        tt.store(key, PackedMove.code(bestMove), scoreToTt(score, ply), depth, bound);
     }
 
     /**
-     * Generate all capture moves, ordered by MVV (Most Valuable Victim).
+     * Mate scores are stored relative to the node rather than the root, so
+     * an entry reached at a different ply still gives the right distance.
      */
-    private List<Move> generateCaptures(Position pos) {
-        List<Move> allMoves = MoveGen.generateLegal(pos);
-        List<Move> captures = new ArrayList<>();
+    private static int scoreToTt(int score, int ply) {
+        if (score >= MATE_BOUND)
+            return score + ply;
+        if (score <= -MATE_BOUND)
+            return score - ply;
+        return score;
+    }
 
-        boolean whiteToMove = pos.isWhiteToMove();
+    private static int scoreFromTt(int score, int ply) {
+        if (score >= MATE_BOUND)
+            return score - ply;
+        if (score <= -MATE_BOUND)
+            return score + ply;
+        return score;
+    }
 
-        for (Move move : allMoves) {
-            char target = pos.pieceAt(move.to());
+    /** Value of the piece a capture takes; en passant takes a pawn. */
+    static int capturedValue(Position pos, int move) {
+        if (PackedMove.isEnPassant(move))
+            return PST.PIECE_VALUES[0];
+        return PST.PIECE_VALUES[pos.pieceIndexAt(PackedMove.to(move)) % 6];
+    }
 
-            // Check if it's a capture
-            if (target != '.') {
-                boolean targetIsWhite = Character.isUpperCase(target);
-                if (whiteToMove != targetIsWhite) {
-                    captures.add(move);
-                }
-            }
-            // Also check for en-passant
-            else if ((pos.pieceAt(move.from()) == 'P' || pos.pieceAt(move.from()) == 'p')
-                    && move.to() == pos.epSquare()) {
-                captures.add(move);
+    /**
+     * Quiescence search - searches only captures and queen promotions to
+     * avoid horizon effect. Captures that lose material by SEE are not
+     * searched, nor those that could not reach alpha even if the victim were
+     * won for free. In check there is no stand-pat: every evasion is searched,
+     * so a mate at the horizon is seen.
+     * Returns score from the side to move's perspective.
+     */
+    private int quiescence(Position pos, int qDepth, int alpha, int beta, int ply) {
+        nodeCount++;
+        selDepth = Math.max(selDepth, ply);
+        if (ply < MAX_PLY)
+            pvLength[ply] = 0;
+        if (checkStop())
+            return 0;
+
+        if (qDepth == 0 || ply >= MAX_PLY) {
+            return staticEval(pos);
+        }
+
+        boolean inCheck = inCheck(pos, pos.isWhiteToMove());
+        MovePicker picker = pickers[ply];
+        int standPat = 0;
+        if (inCheck) {
+            picker.initEvasions(pos);
+        } else {
+            standPat = staticEval(pos);
+            if (standPat >= beta) {
+                return beta;
             }
+            alpha = Math.max(alpha, standPat);
+            picker.initCaptures(pos);
         }
 
-        // Sort by MVV (most valuable victim first)
-        captures.sort((m1, m2) -> {
-            int v1 = Eval.getPieceValue(pos.pieceAt(m1.to()));
-            int v2 = Eval.getPieceValue(pos.pieceAt(m2.to()));
-            return Integer.compare(v2, v1); // Descending order
-        });
+        // The picker only returns legal moves here
+        int legalMoves = 0;
+        int move;
+        while ((move = picker.next()) != PackedMove.NONE) {
+            legalMoves++;
+            // Delta pruning: even winning the victim outright cannot lift the score to alpha
+            if (!inCheck && !PackedMove.isPromotion(move)
+                    && standPat + capturedValue(pos, move) + DELTA_MARGIN <= alpha)
+                continue;
+            pos.makeMove(move);
+            int score = -quiescence(pos, qDepth - 1, -beta, -alpha, ply + 1);
+            pos.unmakeMove();
+
+            if (score >= beta) {
+                return beta;
+            }
+            alpha = Math.max(alpha, score);
+        }
 
-        return captures;
+        if (inCheck && legalMoves == 0)
+            return -MATE_SCORE + ply;
+        return alpha;
     }
 }
@@ -0,0 +1,36 @@
+package engine;
+
+/**
+ * Switches for the selective search features, set through UCI check options
+ * so each can be turned off for comparison.
+ */
+public record SearchConfig(
+        boolean nullMove,
+        boolean lateMoveReductions,
+        boolean futility,
+        boolean checkExtensions) {
+
+    public static final SearchConfig DEFAULT = new SearchConfig(true, true, true, true);
+
+    /** UCI option names, in the order of the record components. */
+    public static final String NULL_MOVE = "NullMove";
+    public static final String LMR = "LMR";
+    public static final String FUTILITY = "Futility";
+    public static final String CHECK_EXTENSIONS = "CheckExtensions";
+
+    /**
+     * Copy with the named option changed, or this config if name is not
+     * one of the options above (case-insensitive, as UCI names are).
+     */
+    public SearchConfig with(String name, boolean value) {
+        if (name.equalsIgnoreCase(NULL_MOVE))
+            return new SearchConfig(value, lateMoveReductions, futility, checkExtensions);
+        if (name.equalsIgnoreCase(LMR))
+            return new SearchConfig(nullMove, value, futility, checkExtensions);
+        if (name.equalsIgnoreCase(FUTILITY))
+            return new SearchConfig(nullMove, lateMoveReductions, value, checkExtensions);
+        if (name.equalsIgnoreCase(CHECK_EXTENSIONS))
+            return new SearchConfig(nullMove, lateMoveReductions, futility, value);
+        return this;
+    }
+}
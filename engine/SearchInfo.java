@@ -0,0 +1,34 @@
+package engine;
+
+import java.util.List;
+
+/**
+ * Snapshot after a completed iteration. Unlike AnalysisResult, the score is
+ * from the side to move's perspective, as UCI reports it.
+ *
+ * @param nodes    nodes over all threads so far
+ * @param timeMs   time since the search started
+ * @param hashfull transposition table use in permille
+ */
+public record SearchInfo(
+        int depth,
+        int selDepth,
+        int score,
+        long nodes,
+        long timeMs,
+        int hashfull,
+        List<String> pv) {
+
+    public long nps() {
+        return nodes * 1000 / Math.max(1, timeMs);
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /** Moves until mate, negative if the side to move is getting mated. Only meaningful if isMate(). */
+    public int mateIn() {
+        return score > 0 ? (Search.MATE_SCORE - score + 1) / 2 : -(Search.MATE_SCORE + score) / 2;
+    }
+}
@@ -1,4 +1,29 @@
 package engine;
 
-public record SearchLimits(int depth) {
+/**
+ * Limits from a UCI "go" command. Times are in milliseconds; -1 means not
+ * given. depth 0 means no depth limit was requested.
+ */
+public record SearchLimits(
+        int depth,
+        long wtime,
+        long btime,
+        long winc,
+        long binc,
+        int movestogo,
+        long movetime,
+        boolean infinite,
+        boolean ponder) {
+
+    public SearchLimits(int depth) {
+        this(depth, -1, -1, 0, 0, 0, -1, false, false);
+    }
+
+    /**
+     * True if the search should stop on a clock rather than only on depth or
+     * "stop". Only the mover's clock counts; the opponent's alone gives no budget.
+     */
+    public boolean isTimed(boolean whiteToMove) {
+        return movetime >= 0 || (whiteToMove ? wtime : btime) >= 0;
+    }
 }
@@ -0,0 +1,20 @@
+package engine;
+
+import core.Move;
+
+/**
+ * Progress from a running analyze(), called on the search thread. Only the
+ * main search thread reports; Lazy SMP helpers stay silent.
+ */
+public interface SearchListener {
+    SearchListener NONE = new SearchListener() {
+    };
+
+    /** An iteration of iterative deepening completed. */
+    default void iteration(SearchInfo info) {
+    }
+
+    /** Root move number (from 1) is about to be searched at depth. */
+    default void currentMove(int depth, Move move, int number) {
+    }
+}
@@ -0,0 +1,53 @@
+package engine;
+
+/**
+ * Per-move time budget derived from the UCI clock fields.
+ * The soft limit decides whether to start another iteration; the hard limit
+ * aborts a running one.
+ */
+final class TimeManager {
+    private static final long MOVE_OVERHEAD_MS = 30;
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final long softMs; // -1 = unlimited
+    private final long hardMs; // -1 = unlimited
+
+    private TimeManager(long softMs, long hardMs) {
+        this.softMs = softMs;
+        this.hardMs = hardMs;
+    }
+
+    static TimeManager forLimits(SearchLimits limits, boolean whiteToMove) {
+        if (limits.infinite())
+            return new TimeManager(-1, -1);
+
+        if (limits.movetime() >= 0) {
+            // Fixed time per move: keep iterating until the hard stop
+            return new TimeManager(-1, Math.max(1, limits.movetime() - MOVE_OVERHEAD_MS));
+        }
+
+        long time = whiteToMove ? limits.wtime() : limits.btime();
+        if (time < 0)
+            return new TimeManager(-1, -1);
+        long inc = whiteToMove ? limits.winc() : limits.binc();
+        int movesToGo = limits.movestogo() > 0 ? limits.movestogo() : DEFAULT_MOVES_TO_GO;
+
+        // Never plan to use more than what is left minus the overhead
+        long available = Math.max(1, time - MOVE_OVERHEAD_MS);
+        long soft = Math.min(available, time / movesToGo + inc * 3 / 4);
+        long hard = Math.min(available, Math.max(soft, Math.min(soft * 4, available / 3)));
+        return new TimeManager(Math.max(1, soft), Math.max(1, hard));
+    }
+
+    long hardMs() {
+        return hardMs;
+    }
+
+    /**
+     * Whether another iteration is worth starting. The next iteration usually
+     * costs several times the last one, so stop once half the budget is gone.
+     */
+    boolean shouldStartIteration(long elapsedMs) {
+        return softMs < 0 || elapsedMs < softMs / 2;
+    }
+}
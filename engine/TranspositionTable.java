@@ -0,0 +1,123 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table shared by all search threads.
+ *
+ * Each entry is two longs: the key XORed with the data word, then the data
+ * word. A reader accepts an entry only if the two XOR back to its key, so a
+ * torn write from another thread reads as a miss instead of bad data. No
+ * locks are taken.
+ *
+ * Data word layout (low to high): move 16 bits (PackedMove.code), score 22 bits (signed),
+ * depth 8 bits, bound 2 bits, age 8 bits.
+ */
+public final class TranspositionTable {
+    public static final int DEFAULT_MB = 16;
+    public static final int MIN_MB = 1;
+    public static final int MAX_MB = 4096;
+
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2; // true score >= stored score
+    public static final int BOUND_UPPER = 3; // true score <= stored score
+
+    private static final int SCORE_BIAS = 1 << 21;
+
+    private long[] table;
+    private int mask; // entries - 1
+    private int age;
+
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /** Reallocate to the largest power-of-two entry count that fits; clears the table. */
+    public void resize(int megabytes) {
+        int mb = Math.max(MIN_MB, Math.min(MAX_MB, megabytes));
+        long entries = Long.highestOneBit(((long) mb << 20) / 16);
+        entries = Math.min(entries, 1L << 29); // keep 2 * entries within array bounds
+        table = new long[(int) entries * 2];
+        mask = (int) entries - 1;
+        age = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    /** Advance the age so entries from earlier searches lose replacement priority. */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /** Data word for key, or 0 on a miss. */
+    public long probe(long key) {
+        int i = index(key);
+        long data = table[i + 1];
+        if ((table[i] ^ data) != key)
+            return 0L;
+        return data;
+    }
+
+    /**
+     * Store an entry. An existing entry for a different position is kept if
+     * it is from the current search and deeper than the new one.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int i = index(key);
+        long oldData = table[i + 1];
+        boolean sameKey = (table[i] ^ oldData) == key;
+        if (!sameKey && oldData != 0L && age(oldData) == age && depth(oldData) > depth)
+            return;
+        // Keep the old best move when re-storing the same position without one
+        if (move == 0 && sameKey)
+            move = move(oldData);
+
+        long data = (move & 0xFFFFL)
+                | ((long) (score + SCORE_BIAS) & 0x3FFFFFL) << 16
+                | ((long) Math.max(0, Math.min(255, depth))) << 38
+                | ((long) bound) << 46
+                | ((long) age) << 48;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    /** Permille of sampled entries written during the current search, for UCI hashfull. */
+    public int hashfull() {
+        int sample = Math.min(1000, mask + 1);
+        int used = 0;
+        for (int e = 0; e < sample; e++) {
+            long data = table[2 * e + 1];
+            if (data != 0L && age(data) == age)
+                used++;
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (int) ((data >>> 16) & 0x3FFFFF) - SCORE_BIAS;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 38) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 46) & 3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> 48) & 0xFF);
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) << 1;
+    }
+}
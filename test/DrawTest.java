@@ -0,0 +1,87 @@
+import core.*;
+import engine.*;
+import uci.UciState;
+
+import java.util.List;
+
+/**
+ * Tests for repetition and fifty-move draw detection.
+ */
+public class DrawTest {
+    public static void main(String[] args) {
+        int passed = 0;
+        int failed = 0;
+
+        // Test 1: Knights out and back repeats the start position
+        System.out.println("=== Test 1: Repetition Through UCI Moves ===");
+        UciState state = new UciState();
+        state.setPosition(Position.startPos(), List.of("g1f3", "g8f6", "f3g1"));
+        boolean before = state.position().isRepetition();
+        state.setPosition(Position.startPos(), List.of("g1f3", "g8f6", "f3g1", "f6g8"));
+        boolean after = state.position().isRepetition();
+        if (!before && after) {
+            System.out.println("✓ Start position seen again after Nf3 Nf6 Ng1 Ng8");
+            passed++;
+        } else {
+            System.out.println("✗ Repetition before/after the last move: " + before + "/" + after);
+            failed++;
+        }
+
+        // Test 2: Copies keep the history, and positions after a pawn move still repeat
+        System.out.println("\n=== Test 2: History Survives Copy and Pawn Moves ===");
+        Position copy = state.position().copy();
+        state.setPosition(Position.startPos(), List.of("e2e4", "g8f6", "g1f3", "f6g8", "f3g1"));
+        Position pawnFirst = state.position().copy();
+        pawnFirst.makeMove(new Move(62, 45, (char) 0)); // Nf6
+        pawnFirst.makeMove(new Move(6, 21, (char) 0)); // Nf3
+        boolean repeatsAfterPawn = pawnFirst.isRepetition();
+        if (copy.isRepetition() && repeatsAfterPawn) {
+            System.out.println("✓ Copied position and post-pawn-move shuffle both repeat");
+            passed++;
+        } else {
+            System.out.println("✗ Copy repeats: " + copy.isRepetition() + ", after pawn move: " + repeatsAfterPawn);
+            failed++;
+        }
+
+        // Test 3: A queen up, but every move completes fifty moves without progress
+        System.out.println("\n=== Test 3: Fifty-Move Rule ===");
+        Engine engine = new BasicEngine();
+        AnalysisResult r = engine.analyze(Position.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 99 80"), new SearchLimits(4));
+        AnalysisResult fresh = engine.analyze(Position.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 0 80"),
+                new SearchLimits(4));
+        if (r.evalCp() == 0 && fresh.evalCp() > 500) {
+            System.out.println("✓ Eval 0 on the hundredth ply, " + fresh.evalCp() + " with a fresh clock");
+            passed++;
+        } else {
+            System.out.println("✗ Eval " + r.evalCp() + " on the hundredth ply, " + fresh.evalCp() + " fresh");
+            failed++;
+        }
+
+        // Test 4: A null move counts towards fifty moves but hides older positions
+        System.out.println("\n=== Test 4: Null Move Barrier ===");
+        Position pass = Position.fromFen("4k3/8/8/8/8/8/8/3QK1N1 w - - 98 80");
+        pass.makeNullMove();
+        pass.makeMove(new Move(60, 59, (char) 0)); // Kd8
+        boolean fifty = pass.halfmoveClock() >= 100;
+        Position shuffle = Position.startPos();
+        shuffle.makeMove(new Move(6, 21, (char) 0)); // Nf3
+        shuffle.makeNullMove();
+        shuffle.makeMove(new Move(21, 6, (char) 0)); // Ng1
+        shuffle.makeNullMove();
+        boolean repeatsAcrossNull = shuffle.hash() == Position.startPos().hash() && shuffle.isRepetition();
+        if (fifty && !repeatsAcrossNull) {
+            System.out.println("✓ Clock reaches 100 through a pass, start position after two passes not a repetition");
+            passed++;
+        } else {
+            System.out.println("✗ Fifty moves through a pass: " + fifty + ", repetition across passes: "
+                    + repeatsAcrossNull);
+            failed++;
+        }
+
+        // Summary
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Tests passed: " + passed);
+        System.out.println("Tests failed: " + failed);
+        System.out.println("=".repeat(50));
+    }
+}
@@ -0,0 +1,149 @@
+import core.*;
+import engine.*;
+
+/**
+ * Tests for the incremental tapered evaluation.
+ */
+public class EvalTest {
+    private static int checked = 0;
+    private static int mismatches = 0;
+
+    public static void main(String[] args) {
+        int passed = 0;
+        int failed = 0;
+
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+        };
+
+        // Test 1: Incremental sums match a fresh position across a move tree
+        System.out.println("=== Test 1: Incremental Scores vs Recompute ===");
+        for (String fen : fens)
+            walk(Position.fromFen(fen), 3);
+        if (mismatches == 0) {
+            System.out.println("✓ " + checked + " positions checked, all scores match");
+            passed++;
+        } else {
+            System.out.println("✗ " + mismatches + " score mismatches in " + checked + " positions");
+            failed++;
+        }
+
+        // Test 2: Swapping colors negates the evaluation
+        System.out.println("\n=== Test 2: Color Symmetry ===");
+        boolean symmetric = true;
+        for (String fen : fens) {
+            int e = Eval.evaluate(Position.fromFen(fen));
+            int m = Eval.evaluate(Position.fromFen(mirror(fen)));
+            if (e != -m) {
+                System.out.println("✗ " + fen + ": " + e + " vs mirrored " + m);
+                symmetric = false;
+            }
+        }
+        if (symmetric) {
+            System.out.println("✓ Mirrored positions evaluate to the negated score");
+            passed++;
+        } else {
+            failed++;
+        }
+
+        // Test 3: Full material uses the middlegame tables, bare kings and pawns the endgame ones
+        System.out.println("\n=== Test 3: Taper Endpoints ===");
+        Position opening = Position.startPos();
+        Position pawns = Position.fromFen("4k3/5ppp/8/8/8/8/5PPP/4K3 w - - 0 1");
+        if (opening.phase() == PST.PHASE_MAX && Eval.evaluate(opening) == opening.mgScore()
+                && pawns.phase() == 0 && Eval.evaluate(pawns) == pawns.egScore()) {
+            System.out.println("✓ Phase " + PST.PHASE_MAX + " gives the middlegame score, phase 0 the endgame score");
+            passed++;
+        } else {
+            System.out.println("✗ Taper endpoints: phase " + opening.phase() + "/" + pawns.phase());
+            failed++;
+        }
+
+        // Test 4: Pawn structure terms
+        System.out.println("\n=== Test 4: Pawn Structure ===");
+        String base = "4k3/8/8/8/8/8/8/4K3 w - - 0 1";
+        int bare = Eval.evaluate(Position.fromFen(base));
+        int passed6 = Eval.evaluate(Position.fromFen("4k3/8/P7/8/8/8/8/4K3 w - - 0 1"));
+        int blocked6 = Eval.evaluate(Position.fromFen("4k3/1p6/P7/8/8/8/8/4K3 w - - 0 1"))
+                - Eval.evaluate(Position.fromFen("4k3/1p6/8/8/8/8/8/4K3 w - - 0 1"));
+        int healthy = Eval.evaluate(Position.fromFen("4k3/ppp5/8/8/8/8/PPP5/4K3 w - - 0 1"));
+        int doubledIsolated = Eval.evaluate(Position.fromFen("4k3/ppp5/8/8/8/P7/P1P5/4K3 w - - 0 1"));
+        if (passed6 - bare > blocked6 && doubledIsolated < healthy) {
+            System.out.println("✓ Passed pawn bonus and doubled/isolated penalties apply");
+            passed++;
+        } else {
+            System.out.println("✗ Pawn terms: passed " + (passed6 - bare) + " vs blocked " + blocked6
+                    + ", doubled/isolated " + doubledIsolated + " vs healthy " + healthy);
+            failed++;
+        }
+
+        // Summary
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Tests passed: " + passed);
+        System.out.println("Tests failed: " + failed);
+        System.out.println("=".repeat(50));
+    }
+
+    private static void walk(Position pos, int depth) {
+        checked++;
+        int mg = 0;
+        int eg = 0;
+        int phase = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = pos.pieceAt(sq);
+            int index = Position.pieceIndex(piece);
+            if (index == Position.NO_PIECE)
+                continue;
+            boolean white = Position.isWhitePiece(index);
+            int sign = white ? 1 : -1;
+            mg += sign * (PST.PIECE_VALUES[index % 6] + PST.value(sq, white, piece, false));
+            eg += sign * (PST.PIECE_VALUES[index % 6] + PST.value(sq, white, piece, true));
+            phase += PST.PHASE_WEIGHTS[index % 6];
+        }
+        if (pos.mgScore() != mg || pos.egScore() != eg || pos.phase() != phase
+                || pos.copy().mgScore() != mg || pos.copy().phase() != phase)
+            mismatches++;
+        if (depth == 0)
+            return;
+        for (Move m : MoveGen.generateLegal(pos)) {
+            pos.makeMove(m);
+            walk(pos, depth - 1);
+            pos.unmakeMove();
+        }
+    }
+
+    /** Flip the board vertically and swap colors. */
+    private static String mirror(String fen) {
+        String[] parts = fen.split(" ");
+        String[] ranks = parts[0].split("/");
+        StringBuilder board = new StringBuilder();
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            board.append(swapCase(ranks[i]));
+            if (i > 0)
+                board.append('/');
+        }
+        String side = parts[1].equals("w") ? "b" : "w";
+        String castling = parts[2].equals("-") ? "-" : sortCastling(swapCase(parts[2]));
+        String ep = parts[3].equals("-") ? "-" : parts[3].charAt(0) + (parts[3].charAt(1) == '3' ? "6" : "3");
+        return board + " " + side + " " + castling + " " + ep + " " + parts[4] + " " + parts[5];
+    }
+
+    private static String swapCase(String s) {
+        StringBuilder out = new StringBuilder();
+        for (char c : s.toCharArray())
+            out.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        return out.toString();
+    }
+
+    private static String sortCastling(String s) {
+        StringBuilder out = new StringBuilder();
+        for (char c : "KQkq".toCharArray()) {
+            if (s.indexOf(c) >= 0)
+                out.append(c);
+        }
+        return out.toString();
+    }
+}
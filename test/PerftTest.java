@@ -0,0 +1,133 @@
+import core.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Perft suite: standard positions with published node counts. Also reports
+ * move generator throughput in nodes per second.
+ */
+public class PerftTest {
+    private record Case(String name, String fen, int depth, long nodes) {
+    }
+
+    private static final Case[] SUITE = {
+            new Case("startpos", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 5, 4_865_609L),
+            new Case("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4_085_603L),
+            new Case("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674_624L),
+            new Case("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422_333L),
+            new Case("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2_103_487L),
+            new Case("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3_894_594L)
+    };
+
+    public static void main(String[] args) {
+        int passed = 0;
+        int failed = 0;
+        long totalNodes = 0;
+        long totalNanos = 0;
+
+        // Test 1: Node counts for each suite position
+        System.out.println("=== Test 1: Standard Perft Suite ===");
+        for (Case c : SUITE) {
+            Position pos = Position.fromFen(c.fen());
+            long start = System.nanoTime();
+            long nodes = Perft.perft(pos, c.depth());
+            long nanos = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalNanos += nanos;
+
+            String line = c.name() + " depth " + c.depth() + ": " + nodes
+                    + " (" + nanos / 1_000_000 + " ms, " + nps(nodes, nanos) + " nps)";
+            if (nodes == c.nodes()) {
+                System.out.println("✓ " + line);
+                passed++;
+            } else {
+                System.out.println("✗ " + line + ", expected " + c.nodes());
+                failed++;
+            }
+        }
+        System.out.println("Total: " + totalNodes + " nodes, " + nps(totalNodes, totalNanos) + " nps");
+
+        // Test 2: Threaded divide agrees with the single-threaded count
+        System.out.println("\n=== Test 2: Threaded Divide ===");
+        Case kiwipete = SUITE[1];
+        Perft.DivideResult divide = Perft.divide(Position.fromFen(kiwipete.fen()), 3, 4);
+        if (divide.total() == 97_862L && divide.moves().size() == 48) {
+            System.out.println("✓ Divide over 48 root moves sums to " + divide.total());
+            passed++;
+        } else {
+            System.out.println("✗ Divide gave " + divide.total() + " over " + divide.moves().size() + " moves");
+            failed++;
+        }
+
+        // Test 3: Noisy and evasion generators agree with legal generation
+        System.out.println("\n=== Test 3: Noisy and Evasion Generators ===");
+        for (Case c : SUITE)
+            compareGenerators(Position.fromFen(c.fen()), 2);
+        if (generatorMismatches == 0) {
+            System.out.println("✓ " + generatorChecks + " positions (" + evasionChecks
+                    + " in check), noisy and evasion moves match legal moves");
+            passed++;
+        } else {
+            System.out.println("✗ " + generatorMismatches + " mismatches in " + generatorChecks + " positions");
+            failed++;
+        }
+
+        // Summary
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Tests passed: " + passed);
+        System.out.println("Tests failed: " + failed);
+        System.out.println("=".repeat(50));
+    }
+
+    private static int generatorChecks = 0;
+    private static int generatorMismatches = 0;
+    private static int evasionChecks = 0;
+
+    /**
+     * In check, generateEvasions must give exactly the legal moves; and
+     * generateNoisy exactly the legal captures and promotions, in every
+     * position of the tree.
+     */
+    private static void compareGenerators(Position pos, int depth) {
+        generatorChecks++;
+        int[] legal = new int[MoveGen.MAX_MOVES];
+        int[] evasions = new int[MoveGen.MAX_MOVES];
+        int[] noisy = new int[MoveGen.MAX_MOVES];
+        int legalCount = MoveGen.generateLegal(pos, legal);
+        boolean inCheck = Attack.isSquareAttacked(pos, pos.findKingSquare(pos.isWhiteToMove()), !pos.isWhiteToMove());
+        int evasionCount = inCheck ? MoveGen.generateEvasions(pos, evasions, 0) : 0;
+        if (inCheck)
+            evasionChecks++;
+        int noisyCount = MoveGen.generateNoisy(pos, noisy, 0);
+
+        Set<Integer> legalSet = new HashSet<>();
+        Set<Integer> legalNoisy = new HashSet<>();
+        for (int i = 0; i < legalCount; i++) {
+            legalSet.add(legal[i]);
+            if (PackedMove.isCapture(legal[i]) || PackedMove.isPromotion(legal[i]))
+                legalNoisy.add(legal[i]);
+        }
+        Set<Integer> evasionSet = new HashSet<>();
+        for (int i = 0; i < evasionCount; i++)
+            evasionSet.add(evasions[i]);
+        Set<Integer> noisySet = new HashSet<>();
+        for (int i = 0; i < noisyCount; i++)
+            noisySet.add(noisy[i]);
+        if ((inCheck && (evasionCount != legalCount || !evasionSet.equals(legalSet)))
+                || noisyCount != legalNoisy.size() || !noisySet.equals(legalNoisy))
+            generatorMismatches++;
+
+        if (depth == 0)
+            return;
+        for (int i = 0; i < legalCount; i++) {
+            pos.makeMove(legal[i]);
+            compareGenerators(pos, depth - 1);
+            pos.unmakeMove();
+        }
+    }
+
+    private static long nps(long nodes, long nanos) {
+        return nodes * 1_000_000_000L / Math.max(1, nanos);
+    }
+}
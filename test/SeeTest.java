@@ -0,0 +1,53 @@
+import core.*;
+
+/**
+ * Tests for static exchange evaluation.
+ */
+public class SeeTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        // Test 1: Rook takes an undefended pawn
+        System.out.println("=== Test 1: Undefended Victim ===");
+        check("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", 4, 36, 100);
+
+        // Test 2: Pawn trade, recaptured by a pawn
+        System.out.println("\n=== Test 2: Even Trade ===");
+        check("4k3/8/3p4/4p3/3P4/8/8/4K3 w - - 0 1", 27, 36, 0);
+
+        // Test 3: Knight takes a pawn defended by knight and x-rayed bishop/queen battery
+        System.out.println("\n=== Test 3: Losing Capture with X-Rays ===");
+        check("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", 19, 36, -200);
+
+        // Test 4: En passant into a defended square
+        System.out.println("\n=== Test 4: En Passant ===");
+        check("4k3/4p3/8/3pP3/8/8/8/4K3 w - d6 0 1", 36, 43, 0);
+
+        // Summary
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Tests passed: " + passed);
+        System.out.println("Tests failed: " + failed);
+        System.out.println("=".repeat(50));
+    }
+
+    private static void check(String fen, int from, int to, int expected) {
+        Position pos = Position.fromFen(fen);
+        int move = PackedMove.NONE;
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        int n = MoveGen.generateLegal(pos, moves);
+        for (int i = 0; i < n; i++) {
+            if (PackedMove.from(moves[i]) == from && PackedMove.to(moves[i]) == to)
+                move = moves[i];
+        }
+        int see = move == PackedMove.NONE ? Integer.MIN_VALUE : Attack.see(pos, move);
+        String uci = UciMove.format(new Move(from, to, (char) 0));
+        if (see == expected) {
+            System.out.println("✓ " + uci + " SEE = " + see);
+            passed++;
+        } else {
+            System.out.println("✗ " + uci + " SEE = " + see + ", expected " + expected);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import core.*;
+import uci.UciState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for incremental position updates in UciState.
+ */
+public class UciStateTest {
+    public static void main(String[] args) {
+        int passed = 0;
+        int failed = 0;
+
+        List<String> game = List.of("e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6", "e1g1", "f8e7");
+
+        // Test 1: Growing the move list one move at a time matches a fresh replay
+        System.out.println("=== Test 1: Incremental Extension ===");
+        UciState incremental = new UciState();
+        for (int i = 0; i <= game.size(); i++)
+            incremental.setPosition(Position.startPos(), game.subList(0, i));
+        UciState fresh = new UciState();
+        fresh.setPosition(Position.startPos(), game);
+        if (incremental.position().hash() == fresh.position().hash()
+                && incremental.position().hash() == Zobrist.compute(incremental.position())) {
+            System.out.println("✓ " + game.size() + " moves added one per command reach the same position");
+            passed++;
+        } else {
+            System.out.println("✗ Incremental and fresh replays differ");
+            failed++;
+        }
+
+        // Test 2: A list that does not extend the previous one is replayed from the base
+        System.out.println("\n=== Test 2: Diverging Move List ===");
+        List<String> other = new ArrayList<>(game.subList(0, 4));
+        other.add("f1c4");
+        incremental.setPosition(Position.startPos(), other);
+        UciState expected = new UciState();
+        expected.setPosition(Position.startPos(), other);
+        if (incremental.position().hash() == expected.position().hash()) {
+            System.out.println("✓ Diverging list rebuilt from the start position");
+            passed++;
+        } else {
+            System.out.println("✗ Diverging list left a stale position");
+            failed++;
+        }
+
+        // Test 3: The promotion piece in the move string is the one placed
+        System.out.println("\n=== Test 3: Under-Promotion ===");
+        UciState promo = new UciState();
+        promo.setPosition(Position.fromFen("4k3/P7/8/8/8/8/8/4K3 w - - 0 1"), List.of("a7a8n"));
+        if (promo.position().pieceAt(56) == 'N') {
+            System.out.println("✓ a7a8n places a knight");
+            passed++;
+        } else {
+            System.out.println("✗ a7a8n placed '" + promo.position().pieceAt(56) + "'");
+            failed++;
+        }
+
+        // Test 4: An illegal move stops the replay, leaving earlier moves applied
+        System.out.println("\n=== Test 4: Illegal Move ===");
+        UciState illegal = new UciState();
+        illegal.setPosition(Position.startPos(), List.of("e2e4", "e7e5", "e1e3", "g1f3"));
+        UciState prefix = new UciState();
+        prefix.setPosition(Position.startPos(), List.of("e2e4", "e7e5"));
+        if (illegal.position().hash() == prefix.position().hash()) {
+            System.out.println("✓ Replay stopped at e1e3");
+            passed++;
+        } else {
+            System.out.println("✗ Moves after the illegal e1e3 changed the position");
+            failed++;
+        }
+
+        // Summary
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Tests passed: " + passed);
+        System.out.println("Tests failed: " + failed);
+        System.out.println("=".repeat(50));
+    }
+}
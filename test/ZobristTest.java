@@ -0,0 +1,94 @@
+import core.*;
+
+/**
+ * Tests for incremental Zobrist hashing through apply and make/unmake.
+ */
+public class ZobristTest {
+    private static int checked = 0;
+    private static int mismatches = 0;
+
+    public static void main(String[] args) {
+        int passed = 0;
+        int failed = 0;
+
+        // Test 1: Incremental key matches a full recompute across a move tree
+        System.out.println("=== Test 1: Incremental Key vs Recompute ===");
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 1"
+        };
+        for (String fen : fens) {
+            Position pos = Position.fromFen(fen);
+            long before = pos.hash();
+            walk(pos, 3);
+            if (pos.hash() != before)
+                mismatches++;
+        }
+        if (mismatches == 0) {
+            System.out.println("✓ " + checked + " positions checked, all keys match");
+            passed++;
+        } else {
+            System.out.println("✗ " + mismatches + " key mismatches in " + checked + " positions");
+            failed++;
+        }
+
+        // Test 2: Transposition reaches the same key
+        System.out.println("\n=== Test 2: Transposition ===");
+        Position a = Position.startPos()
+                .apply(new Move(6, 21, (char) 0)) // Nf3
+                .apply(new Move(62, 45, (char) 0)) // Nf6
+                .apply(new Move(1, 18, (char) 0)) // Nc3
+                .apply(new Move(57, 42, (char) 0)); // Nc6
+        Position b = Position.startPos()
+                .apply(new Move(1, 18, (char) 0)) // Nc3
+                .apply(new Move(57, 42, (char) 0)) // Nc6
+                .apply(new Move(6, 21, (char) 0)) // Nf3
+                .apply(new Move(62, 45, (char) 0)); // Nf6
+        if (a.hash() == b.hash()) {
+            System.out.println("✓ Move-order transposition gives equal keys");
+            passed++;
+        } else {
+            System.out.println("✗ Transposed positions have different keys");
+            failed++;
+        }
+
+        // Test 3: Side to move, castling and ep are part of the key
+        System.out.println("\n=== Test 3: State Components ===");
+        long base = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1").hash();
+        long side = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1").hash();
+        long rights = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w Kkq - 0 1").hash();
+        long noEp = Position.fromFen("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 1").hash();
+        long ep = Position.fromFen("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 1").hash();
+        if (base != side && base != rights && noEp != ep) {
+            System.out.println("✓ Side to move, castling rights and ep file change the key");
+            passed++;
+        } else {
+            System.out.println("✗ Key ignores side to move, castling or ep");
+            failed++;
+        }
+
+        // Summary
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Tests passed: " + passed);
+        System.out.println("Tests failed: " + failed);
+        System.out.println("=".repeat(50));
+    }
+
+    private static void walk(Position pos, int depth) {
+        checked++;
+        if (pos.hash() != Zobrist.compute(pos) || pos.pawnHash() != Zobrist.computePawns(pos))
+            mismatches++;
+        if (depth == 0)
+            return;
+        for (Move m : MoveGen.generateLegal(pos)) {
+            long before = pos.hash();
+            pos.makeMove(m);
+            walk(pos, depth - 1);
+            pos.unmakeMove();
+            if (pos.hash() != before)
+                mismatches++;
+        }
+    }
+}
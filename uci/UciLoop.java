@@ -1,18 +1,36 @@
 package uci;
 
+import core.Move;
+import core.Perft;
 import core.Position;
+import core.UciMove;
 import engine.BasicEngine;
+import engine.Bench;
 import engine.Engine;
+import engine.SearchConfig;
+import engine.SearchInfo;
+import engine.SearchListener;
 import engine.SearchLimits;
+import engine.TranspositionTable;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 
+/**
+ * UCI command loop. Searches run on a worker thread so that "stop",
+ * "ponderhit", "isready" and "quit" are handled while the engine thinks.
+ */
 public final class UciLoop {
     private final UciState state = new UciState();
     private final Engine engine = new BasicEngine();
 
+    private Thread searchThread;
+    // True while the running search only ends on "stop" (go infinite, or ponder before ponderhit)
+    private volatile boolean holdUntilStop;
+    // The running search was started with "go ponder" and has had no ponderhit yet
+    private boolean ponderPending;
+
     public void run() throws Exception {
         BufferedReader in = new BufferedReader(
                 new InputStreamReader(System.in, StandardCharsets.UTF_8));
@@ -28,12 +46,30 @@ public final class UciLoop {
             } else if (line.equals("isready")) {
                 System.out.println("readyok");
             } else if (line.equals("ucinewgame")) {
+                awaitSearch();
                 state.reset();
+                engine.newGame();
+            } else if (line.startsWith("setoption ")) {
+                awaitSearch();
+                handleSetOption(line);
             } else if (line.startsWith("position ")) {
+                awaitSearch();
                 handlePosition(line);
+            } else if (line.startsWith("perft ") || line.startsWith("go perft ")) {
+                awaitSearch();
+                handlePerft(line);
+            } else if (line.equals("bench") || line.startsWith("bench ")) {
+                awaitSearch();
+                handleBench(line);
             } else if (line.startsWith("go")) {
+                awaitSearch();
                 handleGo(line);
+            } else if (line.equals("stop")) {
+                stopSearch();
+            } else if (line.equals("ponderhit")) {
+                handlePonderHit();
             } else if (line.equals("quit")) {
+                stopSearch();
                 break;
             } else {
                 // Ignore unknown commands.
@@ -44,9 +80,30 @@ public final class UciLoop {
     private void handleUci() {
         System.out.println("id name Chessbot");
         System.out.println("id author joe");
+        System.out.println("option name Hash type spin default " + TranspositionTable.DEFAULT_MB
+                + " min " + TranspositionTable.MIN_MB + " max " + TranspositionTable.MAX_MB);
+        System.out.println("option name Threads type spin default " + BasicEngine.DEFAULT_THREADS
+                + " min 1 max " + BasicEngine.MAX_THREADS);
+        System.out.println("option name Ponder type check default false");
+        SearchConfig config = SearchConfig.DEFAULT;
+        printCheckOption(SearchConfig.NULL_MOVE, config.nullMove());
+        printCheckOption(SearchConfig.LMR, config.lateMoveReductions());
+        printCheckOption(SearchConfig.FUTILITY, config.futility());
+        printCheckOption(SearchConfig.CHECK_EXTENSIONS, config.checkExtensions());
         System.out.println("uciok");
     }
 
+    private static void printCheckOption(String name, boolean value) {
+        System.out.println("option name " + name + " type check default " + value);
+    }
+
+    private void handleSetOption(String line) {
+        UciParser.SetOptionCommand cmd = UciParser.parseSetOption(line);
+        if (cmd == null)
+            return;
+        engine.setOption(cmd.name(), cmd.value());
+    }
+
     private void handlePosition(String line) {
         UciParser.PositionCommand cmd = UciParser.parsePosition(line);
         if (cmd == null)
@@ -56,22 +113,144 @@ public final class UciLoop {
 
     private void handleGo(String line) {
         SearchLimits limits = UciParser.parseGo(line);
-        Position pos = state.position();
+        // The worker gets its own copy; later "position" commands replace state's
+        Position pos = state.position().copy();
+
+        holdUntilStop = limits.infinite() || limits.ponder();
+        ponderPending = limits.ponder();
+        searchThread = new Thread(() -> runSearch(pos, limits), "search");
+        searchThread.start();
+    }
+
+    /** Divide output: leaf count per root move, then the total. */
+    private void handlePerft(String line) {
+        UciParser.PerftCommand cmd = UciParser.parsePerft(line);
+        if (cmd == null)
+            return;
+
+        long start = System.nanoTime();
+        Perft.DivideResult result = Perft.divide(state.position(), cmd.depth(), engine.threads());
+        long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < result.moves().size(); i++) {
+            Move m = result.moves().get(i);
+            out.append(UciMove.format(m)).append(": ").append(result.nodes()[i]).append('\n');
+        }
+        out.append('\n');
+        out.append("Nodes searched: ").append(result.total()).append('\n');
+        out.append("info string perft time ").append(ms)
+                .append(" nps ").append(result.total() * 1000 / ms);
+        System.out.println(out);
+    }
+
+    /** Fixed-depth search of the bench suite with the current options. */
+    private void handleBench(String line) {
+        UciParser.BenchCommand cmd = UciParser.parseBench(line);
+        if (cmd == null)
+            return;
+        Bench.run(engine, cmd.depth(), System.out);
+        // Bench leaves the table full of its own positions
+        engine.newGame();
+    }
 
-        var result = engine.analyze(pos, limits);
+    private void runSearch(Position pos, SearchLimits limits) {
+        var result = engine.analyze(pos, limits, INFO_PRINTER);
 
-        // Print UCI info output
-        if (!result.pv().isEmpty()) {
-            System.out.print("info depth " + limits.depth());
-            System.out.print(" score cp " + result.evalCp());
-            System.out.print(" pv");
-            for (String move : result.pv()) {
-                System.out.print(" " + move);
+        // Per-thread throughput when running Lazy SMP
+        if (result.threadNodes().size() > 1) {
+            long ms = Math.max(1, result.timeMs());
+            for (int i = 0; i < result.threadNodes().size(); i++) {
+                long n = result.threadNodes().get(i);
+                System.out.println("info string thread " + i + " nodes " + n + " nps " + (n * 1000 / ms));
             }
-            System.out.println();
         }
 
-        // Print best move
-        System.out.println("bestmove " + result.bestMoveUci());
+        // Print best move, with the expected reply for the GUI to ponder on
+        String bestMove = "bestmove " + result.bestMoveUci();
+        if (result.pv().size() >= 2)
+            bestMove += " ponder " + result.pv().get(1);
+        System.out.println(bestMove);
+    }
+
+    /**
+     * Streams search progress as UCI info lines: one per completed iteration,
+     * and the root move being searched once the search has run a while.
+     * Each line is a single write so it cannot interleave with "readyok".
+     */
+    private static final SearchListener INFO_PRINTER = new SearchListener() {
+        @Override
+        public void iteration(SearchInfo info) {
+            StringBuilder line = new StringBuilder();
+            line.append("info depth ").append(info.depth());
+            line.append(" seldepth ").append(info.selDepth());
+            if (info.isMate())
+                line.append(" score mate ").append(info.mateIn());
+            else
+                line.append(" score cp ").append(info.score());
+            line.append(" nodes ").append(info.nodes());
+            line.append(" nps ").append(info.nps());
+            line.append(" time ").append(info.timeMs());
+            line.append(" hashfull ").append(info.hashfull());
+            line.append(" pv");
+            for (String move : info.pv()) {
+                line.append(' ').append(move);
+            }
+            System.out.println(line);
+        }
+
+        @Override
+        public void currentMove(int depth, Move move, int number) {
+            System.out.println("info depth " + depth + " currmove " + UciMove.format(move)
+                    + " currmovenumber " + number);
+        }
+    };
+
+    private void handlePonderHit() {
+        Thread t = searchThread;
+        if (t == null || !ponderPending)
+            return;
+        ponderPending = false;
+        holdUntilStop = false;
+        // Repeat the ponderhit: it may land before the worker has started pondering
+        while (t.isAlive() && !engine.ponderHit())
+            joinQuietly(t, 5);
+    }
+
+    /** Abort the running search, if any, and wait for its bestmove. */
+    private void stopSearch() {
+        Thread t = searchThread;
+        if (t == null)
+            return;
+        // Repeat the stop: it may land before the worker has reset its flag
+        while (t.isAlive()) {
+            engine.stop();
+            joinQuietly(t, 5);
+        }
+        searchThread = null;
+    }
+
+    /**
+     * Let a running search finish before changing state. Searches that only
+     * end on "stop" are stopped instead of waited on.
+     */
+    private void awaitSearch() {
+        Thread t = searchThread;
+        if (t == null)
+            return;
+        if (holdUntilStop) {
+            stopSearch();
+            return;
+        }
+        joinQuietly(t, 0);
+        searchThread = null;
+    }
+
+    private static void joinQuietly(Thread t, long millis) {
+        try {
+            t.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -1,6 +1,7 @@
 package uci;
 
 import core.Position;
+import engine.Bench;
 import engine.SearchLimits;
 
 import java.util.ArrayList;
@@ -14,6 +15,15 @@ public final class UciParser {
     public record PositionCommand(Position position, List<String> moves) {
     }
 
+    public record SetOptionCommand(String name, String value) {
+    }
+
+    public record PerftCommand(int depth) {
+    }
+
+    public record BenchCommand(int depth) {
+    }
+
     public static PositionCommand parsePosition(String line) {
         String rest = line.substring("position".length()).trim();
         if (rest.isEmpty())
@@ -55,21 +65,100 @@ public final class UciParser {
     }
 
     public static SearchLimits parseGo(String line) {
-        // Supported now: "go" or "go depth N"
+        // "go [ponder] [depth N] [wtime T] [btime T] [winc T] [binc T] [movestogo N] [movetime T] [infinite]"
         List<String> tokens = splitBySpace(line);
-        int depth = 3;
+        int depth = 0;
+        long wtime = -1, btime = -1, winc = 0, binc = 0, movetime = -1;
+        int movestogo = 0;
+        boolean infinite = false;
+        boolean ponder = false;
 
         for (int i = 1; i < tokens.size(); i++) {
-            if (tokens.get(i).equals("depth") && i + 1 < tokens.size()) {
-                try {
-                    depth = Integer.parseInt(tokens.get(i + 1));
-                } catch (NumberFormatException ignored) {
-                }
+            String t = tokens.get(i);
+            if (t.equals("infinite")) {
+                infinite = true;
+                continue;
+            }
+            if (t.equals("ponder")) {
+                ponder = true;
+                continue;
+            }
+            if (i + 1 >= tokens.size())
                 break;
+            long v;
+            try {
+                v = Long.parseLong(tokens.get(i + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            switch (t) {
+                case "depth" -> depth = (int) v;
+                case "wtime" -> wtime = v;
+                case "btime" -> btime = v;
+                case "winc" -> winc = v;
+                case "binc" -> binc = v;
+                case "movestogo" -> movestogo = (int) v;
+                case "movetime" -> movetime = v;
+                default -> {
+                    continue;
+                }
+            }
+            i++;
+        }
+
+        return new SearchLimits(depth, wtime, btime, winc, binc, movestogo, movetime, infinite, ponder);
+    }
+
+    public static PerftCommand parsePerft(String line) {
+        // "perft <depth>" or "go perft <depth>"
+        List<String> tokens = splitBySpace(line);
+        int i = tokens.indexOf("perft");
+        if (i < 0 || i + 1 >= tokens.size())
+            return null;
+        try {
+            int depth = Integer.parseInt(tokens.get(i + 1));
+            return depth < 1 ? null : new PerftCommand(depth);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static BenchCommand parseBench(String line) {
+        // "bench" or "bench <depth>"
+        List<String> tokens = splitBySpace(line);
+        if (tokens.size() < 2)
+            return new BenchCommand(Bench.DEFAULT_DEPTH);
+        try {
+            int depth = Integer.parseInt(tokens.get(1));
+            return depth < 1 ? null : new BenchCommand(depth);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static SetOptionCommand parseSetOption(String line) {
+        // "setoption name <id> [value <x>]"; names and values may contain spaces
+        List<String> tokens = splitBySpace(line);
+        StringBuilder name = new StringBuilder();
+        StringBuilder value = new StringBuilder();
+        StringBuilder current = null;
+
+        for (int i = 1; i < tokens.size(); i++) {
+            String t = tokens.get(i);
+            if (t.equals("name")) {
+                current = name;
+            } else if (t.equals("value")) {
+                current = value;
+            } else if (current != null) {
+                if (current.length() > 0)
+                    current.append(' ');
+                current.append(t);
             }
         }
 
-        return new SearchLimits(depth);
+        if (name.length() == 0)
+            return null;
+        return new SetOptionCommand(name.toString(), value.toString());
     }
 
     private static List<String> splitBySpace(String s) {
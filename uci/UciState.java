@@ -2,6 +2,7 @@ package uci;
 
 import core.Move;
 import core.MoveGen;
+import core.PackedMove;
 import core.Position;
 import core.UciMove;
 
@@ -10,40 +11,49 @@ import java.util.Collections;
 import java.util.List;
 
 public final class UciState {
-    private Position position = Position.startPos();
+    private Position base = Position.startPos();
+    private Position position = base.copy();
     private final List<String> moves = new ArrayList<>();
+    private int applied; // leading entries of moves played on position
 
     public void reset() {
-        position = Position.startPos();
+        base = Position.startPos();
+        position = base.copy();
         moves.clear();
+        applied = 0;
     }
 
+    /**
+     * Set up base and play moveList on it. GUIs resend the whole game every
+     * move, so when base is unchanged and moveList extends the previous list,
+     * only the new moves are played. The moves are played in place, so the
+     * position keeps the game history for repetition detection.
+     */
     public void setPosition(Position base, List<String> moveList) {
-        this.position = base;
-        moves.clear();
-        moves.addAll(moveList);
+        boolean extendsPrevious = sameBase(base) && applied == moves.size()
+                && moveList.size() >= moves.size() && moveList.subList(0, moves.size()).equals(moves);
+        if (!extendsPrevious) {
+            this.base = base.copy();
+            position = base.copy();
+            moves.clear();
+            applied = 0;
+        }
+        moves.addAll(moveList.subList(moves.size(), moveList.size()));
 
-        // Apply moves in order, validating against generated moves.
-        for (String uci : moveList) {
-            Move parsed = UciMove.parse(uci);
-            if (parsed == null)
-                break;
-
-            boolean found = false;
-            for (Move legal : MoveGen.generateLegal(position)) {
-                if (legal.from() == parsed.from() && legal.to() == parsed.to()) {
-                    position = position.apply(legal);
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                // Illegal or unsupported piece type; stop applying further moves for now.
+        // Apply moves in order, validating each against the position
+        while (applied < moves.size()) {
+            Move parsed = UciMove.parse(moves.get(applied));
+            int move = parsed == null ? PackedMove.NONE : MoveGen.legal(position, PackedMove.fromMove(parsed));
+            if (move == PackedMove.NONE) {
+                // Illegal or malformed; stop applying further moves.
                 break;
             }
+            position.makeMove(move);
+            applied++;
         }
     }
 
+    /** Current position. Owned by this state: copy it before making moves on it. */
     public Position position() {
         return position;
     }
@@ -51,4 +61,9 @@ public final class UciState {
     public List<String> moves() {
         return Collections.unmodifiableList(moves);
     }
+
+    private boolean sameBase(Position other) {
+        return other.hash() == base.hash() && other.halfmoveClock() == base.halfmoveClock()
+                && other.fullmoveNumber() == base.fullmoveNumber();
+    }
 }